@@ -0,0 +1,163 @@
+package tablut.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tablut.Judge;
+import tablut.PlayBoard;
+import tablut.TablutSquare;
+import tablut.exceptions.JudgeException;
+
+/**
+ * Výkonnostní testy pravidel (rozhodčího) nad celou sadou pozic.
+ *
+ * @author Ondřej Tom
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JudgeBenchmark
+{
+	/**
+	 * Pole pro vygenerované tahy.
+	 */
+	private int[] moves = new int[Judge.MAX_MOVES_COUNT];
+
+
+	/**
+	 * Možné tahy všech kamenů hráče na tahu.
+	 *
+	 * @param positions
+	 * @return
+	 */
+	@Benchmark
+	public long getPossibleMoves(Positions positions)
+	{
+		long sum = 0;
+
+		for (int i = 0; i < positions.size(); i++)
+		{
+			Judge judge = positions.getJudge(i);
+
+			for (int[] square : getOwnSquares(judge, positions.getPlayer(i)))
+			{
+				sum += judge.getPossibleMoves(square).size();
+			}
+		}
+
+		return sum;
+	}
+
+
+	/**
+	 * Vygenerování všech tahů hráče na tahu (zakódované tahy).
+	 *
+	 * @param positions
+	 * @return
+	 */
+	@Benchmark
+	public long generateMoves(Positions positions)
+	{
+		long sum = 0;
+
+		for (int i = 0; i < positions.size(); i++)
+		{
+			sum += positions.getJudge(i).generateMoves(positions.getPlayer(i), moves);
+		}
+
+		return sum;
+	}
+
+
+	/**
+	 * Zajatci po každém tahu hráče na tahu.
+	 *
+	 * @param positions
+	 * @return
+	 */
+	@Benchmark
+	public long getCaptivesCoords(Positions positions)
+	{
+		long sum = 0;
+
+		for (int i = 0; i < positions.size(); i++)
+		{
+			Judge judge		= positions.getJudge(i);
+			PlayBoard board	= judge.getBoard();
+			int player		= positions.getPlayer(i);
+			int count		= judge.generateMoves(player, moves);
+
+			for (int j = 0; j < count; j++)
+			{
+				int[][] move = Judge.unpackMove(moves[j]);
+
+				board.makeMove(move[0], move[1]);
+				sum += judge.getCaptivesCoords(move[1], player).size();
+				board.makeMove(move[1], move[0]);
+			}
+		}
+
+		return sum;
+	}
+
+
+	/**
+	 * Zahrání a vrácení každého tahu hráče na tahu.
+	 *
+	 * @param positions
+	 * @return
+	 * @throws JudgeException
+	 */
+	@Benchmark
+	public long playMove(Positions positions) throws JudgeException
+	{
+		long sum = 0;
+
+		for (int i = 0; i < positions.size(); i++)
+		{
+			Judge judge	= positions.getJudge(i);
+			int player	= positions.getPlayer(i);
+			int count	= judge.generateMoves(player, moves);
+
+			for (int j = 0; j < count; j++)
+			{
+				judge.playMove(moves[j], player);
+				sum += judge.getBlindMovesCount();
+				judge.undoMove();
+			}
+		}
+
+		return sum;
+	}
+
+
+	/**
+	 * Vrátí souřadnice kamenů hráče na tahu.
+	 *
+	 * @param judge
+	 * @param player
+	 * @return
+	 */
+	private static List<int[]> getOwnSquares(Judge judge, int player)
+	{
+		List<int[]> squares = judge.getBoard().getValuePositions(player);
+
+		if (player == TablutSquare.SWEDEN)
+		{
+			squares.addAll(judge.getBoard().getValuePositions(TablutSquare.KING));
+		}
+
+		return squares;
+	}
+}
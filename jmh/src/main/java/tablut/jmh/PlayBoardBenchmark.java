@@ -0,0 +1,43 @@
+package tablut.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import tablut.PlayBoard;
+
+/**
+ * Výkonnostní testy hrací desky nad celou sadou pozic.
+ *
+ * @author Ondřej Tom
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayBoardBenchmark
+{
+	/**
+	 * Kopie desek všech pozic.
+	 *
+	 * @param positions
+	 * @return
+	 */
+	@Benchmark
+	public long cloneBoard(Positions positions)
+	{
+		long sum = 0;
+
+		for (int i = 0; i < positions.size(); i++)
+		{
+			sum += ((PlayBoard) positions.getJudge(i).getBoard().clone()).getHash();
+		}
+
+		return sum;
+	}
+}
@@ -0,0 +1,137 @@
+package tablut.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import tablut.History;
+import tablut.HistoryItem;
+import tablut.Judge;
+import tablut.PlayBoard;
+import tablut.TablutSquare;
+
+/**
+ * Pevná sada pozic výkonnostních testů.
+ *
+ * Výchozí pozice a pozice po náhodných partiích s pevným semínkem, takže výsledky
+ * různých verzí kódu jsou porovnatelné. Každé vlákno testu má vlastní kopii
+ * (testy na deskách tahy zkoušejí a vracejí).
+ *
+ * @author Ondřej Tom
+ */
+@State(Scope.Thread)
+public class Positions
+{
+	/**
+	 * Semínko náhodných partií sady pozic.
+	 */
+	private static long SEED = 20140601L;
+
+
+	/**
+	 * Počty půltahů náhodných partií sady pozic.
+	 */
+	private static int[] PLIES = {0, 8, 16, 24, 32};
+
+
+	/**
+	 * Sada pozic (rozhodčí s deskou).
+	 */
+	private List<Judge> judges = new ArrayList<>();
+
+
+	/**
+	 * Hráči na tahu pozic sady.
+	 */
+	private List<Integer> players = new ArrayList<>();
+
+
+	/**
+	 * Historie nejdelší partie sady.
+	 */
+	private History history = new History();
+
+
+	/**
+	 * Vytvoří sadu pozic.
+	 */
+	public Positions()
+	{
+		int[] moves = new int[Judge.MAX_MOVES_COUNT];
+
+		for (int plies : PLIES)
+		{
+			Random random	= new Random(SEED);
+			Judge judge		= new Judge(new PlayBoard());
+			int player		= TablutSquare.RUSSIAN;
+
+			history = new History();
+
+			for (int ply = 0; ply < plies; ply++)
+			{
+				int count = judge.generateMoves(player, moves);
+
+				if (count == 0 || judge.isPlayerWinner(TablutSquare.RUSSIAN) || judge.isPlayerWinner(TablutSquare.SWEDEN) || judge.isBlindMovesCountReached())
+				{
+					break;
+				}
+
+				int[][] move = Judge.unpackMove(moves[random.nextInt(count)]);
+
+				history.addUndo(new HistoryItem(player, (PlayBoard) judge.getBoard().clone(), move[0], move[1], judge.getBlindMovesCount()));
+				judge.playGameMove(move[0], move[1], player);
+				player = judge.getOtherPlayer(player);
+			}
+
+			judges.add(judge);
+			players.add(player);
+		}
+	}
+
+
+	/**
+	 * Vrátí počet pozic sady.
+	 *
+	 * @return
+	 */
+	public int size()
+	{
+		return judges.size();
+	}
+
+
+	/**
+	 * Vrátí rozhodčího pozice.
+	 *
+	 * @param position
+	 * @return
+	 */
+	public Judge getJudge(int position)
+	{
+		return judges.get(position);
+	}
+
+
+	/**
+	 * Vrátí hráče na tahu pozice.
+	 *
+	 * @param position
+	 * @return
+	 */
+	public int getPlayer(int position)
+	{
+		return players.get(position);
+	}
+
+
+	/**
+	 * Vrátí historii nejdelší partie sady.
+	 *
+	 * @return
+	 */
+	public History getHistory()
+	{
+		return history;
+	}
+}
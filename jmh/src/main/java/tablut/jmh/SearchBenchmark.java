@@ -0,0 +1,109 @@
+package tablut.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tablut.ComputerPlayer;
+import tablut.Judge;
+import tablut.exceptions.PlayerException;
+
+/**
+ * Výkonnostní test hledání nejlepšího tahu.
+ *
+ * Měří se každá obtížnost, kterou nabízí GUI (viz Manager), na každé pozici sady zvlášť.
+ * Hráč se vytvoří jednou (bez knihovny zahájení, tablebáze a přemýšlení během tahu
+ * soupeře) a před každým hledáním se vyprázdní jeho transpoziční tabulka, aby hledání
+ * nepoužívala výsledky předchozích a neměřila se alokace tabulky.
+ *
+ * @author Ondřej Tom
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class SearchBenchmark
+{
+	/**
+	 * Obtížnost počítačového hráče.
+	 */
+	@Param({"0", "3", "4", "5"})
+	public int difficulty;
+
+
+	/**
+	 * Index pozice sady.
+	 */
+	@Param({"0", "1", "2", "3", "4"})
+	public int position;
+
+
+	/**
+	 * Počítačový hráč.
+	 */
+	private ComputerPlayer player;
+
+
+	/**
+	 * Rozhodčí pozice.
+	 */
+	private Judge judge;
+
+
+	/**
+	 * Hráč na tahu pozice.
+	 */
+	private int playerOnMove;
+
+
+	/**
+	 * Vytvoří hráče a připraví pozici.
+	 */
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		Positions positions = new Positions();
+
+		judge			= positions.getJudge(position);
+		playerOnMove	= positions.getPlayer(position);
+
+		player = new ComputerPlayer(difficulty);
+		player.setOpeningBook(null);
+		player.setTablebase(null);
+		player.setPonderEnabled(false);
+	}
+
+
+	/**
+	 * Vyprázdní transpoziční tabulku hráče (první volání ji alokuje).
+	 */
+	@Setup(Level.Invocation)
+	public void clearTranspositionTable()
+	{
+		player.getTranspositionTable().clear();
+	}
+
+
+	/**
+	 * Hledání nejlepšího tahu.
+	 *
+	 * @return
+	 * @throws PlayerException
+	 */
+	@Benchmark
+	public int[][] getBestMove() throws PlayerException
+	{
+		return player.getBestMove(judge, playerOnMove, null, 0);
+	}
+}
@@ -0,0 +1,111 @@
+package tablut.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tablut.ComputerPlayer;
+import tablut.Manager;
+import tablut.Storage;
+import tablut.exceptions.StorageException;
+
+/**
+ * Výkonnostní testy uložení a načtení hry (nejdelší partie sady pozic).
+ *
+ * @author Ondřej Tom
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageBenchmark
+{
+	/**
+	 * Soubor, do kterého se hra ukládá (Storage.save přidává příponu .xml).
+	 */
+	private File file;
+
+
+	/**
+	 * Uložená hra.
+	 */
+	private File xmlFile;
+
+
+	/**
+	 * Manažer ukládané hry.
+	 */
+	private Manager manager;
+
+
+	/**
+	 * Vytvoří hru a uloží ji (pro test načtení).
+	 *
+	 * @throws IOException
+	 * @throws StorageException
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, StorageException
+	{
+		Positions positions	= new Positions();
+		int last			= positions.size() - 1;
+
+		file	= File.createTempFile("tablut-benchmark", "");
+		xmlFile	= new File(file.getAbsolutePath() + ".xml");
+		manager	= new Manager(new ComputerPlayer(0), new ComputerPlayer(0), positions.getPlayer(last), 0, positions.getJudge(last).getBoard(), positions.getHistory());
+
+		new Storage().save(manager, file);
+	}
+
+
+	/**
+	 * Smaže soubory hry.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		file.delete();
+		xmlFile.delete();
+	}
+
+
+	/**
+	 * Uložení hry.
+	 *
+	 * @return
+	 * @throws StorageException
+	 */
+	@Benchmark
+	public long save() throws StorageException
+	{
+		new Storage().save(manager, file);
+
+		return xmlFile.length();
+	}
+
+
+	/**
+	 * Načtení hry.
+	 *
+	 * @return
+	 * @throws StorageException
+	 */
+	@Benchmark
+	public Manager load() throws StorageException
+	{
+		return new Storage().load(xmlFile);
+	}
+}
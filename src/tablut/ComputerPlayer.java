@@ -1,10 +1,19 @@
 package tablut;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import tablut.events.SearchProgressEvent;
 import tablut.exceptions.PlayerException;
+import tablut.exceptions.SearchAbortedException;
+import tablut.exceptions.StorageException;
 import tablut.listeners.PcIsThinkingListener;
+import tablut.listeners.SearchProgressListener;
 
 /**
  * Třída reprezentující počítačového hráče.
@@ -20,36 +29,701 @@ public class ComputerPlayer extends Player
 	public int difficulty;
 
 
+	/**
+	 * Transpoziční tabulka hráče (vytváří se až při prvním prohledávání).
+	 */
+	private TranspositionTable table;
+
+
+	/**
+	 * Paměťový rozpočet transpoziční tabulky (MB).
+	 */
+	private int tableSizeMB;
+
+
+	/**
+	 * Časový limit na jeden tah (ms), 0 = bez limitu.
+	 */
+	private int timeLimit;
+
+
+	/**
+	 * Paralelní prohledávání - pomocná vlákna nad sdílenou transpoziční tabulkou (Lazy SMP).
+	 */
+	public static final int SEARCH_LAZY_SMP = 0;
+
+
+	/**
+	 * Paralelní prohledávání - rozdělení tahů z kořene mezi vlákna.
+	 */
+	public static final int SEARCH_ROOT_SPLIT = 1;
+
+
+	/**
+	 * Počet vláken prohledávání (1 = sériové prohledávání).
+	 */
+	private int threads = 1;
+
+
+	/**
+	 * Způsob paralelního prohledávání.
+	 */
+	private int searchMode = SEARCH_LAZY_SMP;
+
+
+	/**
+	 * Hlavní varianta posledního hledání nejlepšího tahu.
+	 */
+	private volatile List<int[][]> principalVariation = new ArrayList<>();
+
+
+	/**
+	 * Soubor vah hodnotitele, který se načte při startu (pokud existuje).
+	 */
+	public static String WEIGHTS_FILE = "tablut-weights.properties";
+
+
+	/**
+	 * Výchozí hodnotitel pozic (s vahami ze souboru vah, nebo výchozími).
+	 */
+	private static final Evaluator DEFAULT_EVALUATOR = loadDefaultEvaluator();
+
+
+	/**
+	 * Hodnotitel pozic.
+	 */
+	private Evaluator evaluator = DEFAULT_EVALUATOR;
+
+
+	/**
+	 * Soubor knihovny zahájení, který se načte při startu (pokud existuje).
+	 */
+	public static String BOOK_FILE = "tablut-book.bin";
+
+
+	/**
+	 * Výchozí knihovna zahájení (nebo null).
+	 */
+	private static final OpeningBook DEFAULT_BOOK = loadDefaultOpeningBook();
+
+
+	/**
+	 * Knihovna zahájení, která se použije před prohledáváním (nebo null).
+	 */
+	private OpeningBook openingBook = DEFAULT_BOOK;
+
+
+	/**
+	 * Adresář tablebáze koncovek, která se načte při startu (pokud existuje).
+	 */
+	public static String TABLEBASE_DIRECTORY = "tablut-tablebase";
+
+
+	/**
+	 * Výchozí tablebáze koncovek (nebo null).
+	 */
+	private static final EndgameTablebase DEFAULT_TABLEBASE = loadDefaultTablebase();
+
+
+	/**
+	 * Tablebáze koncovek, která se použije při prohledávání (nebo null).
+	 */
+	private EndgameTablebase tablebase = DEFAULT_TABLEBASE;
+
+
+	/**
+	 * Příznak přemýšlení během tahu soupeře (pondering).
+	 */
+	private boolean ponderEnabled = true;
+
+
+	/**
+	 * Vlákno přemýšlení během tahu soupeře (nebo null).
+	 */
+	private Thread ponderThread = null;
+
+
+	/**
+	 * Prohledávání běžící ve vlákně přemýšlení.
+	 */
+	private SearchEngine ponderEngine = null;
+
+
+	/**
+	 * Hash pozice (po očekávaném tahu soupeře), nad kterou se přemýšlí.
+	 */
+	private long ponderHash = 0;
+
+
+	/**
+	 * Počet tahů bez zajmutí v pozici, nad kterou se přemýšlí (ovlivňuje výsledky tablebáze).
+	 */
+	private int ponderBlindMovesCount = 0;
+
+
+	/**
+	 * Nejlepší tah poslední dokončené iterace přemýšlení (nebo null).
+	 */
+	private int[][] ponderMove = null;
+
+
+	/**
+	 * Hlavní varianta poslední dokončené iterace přemýšlení.
+	 */
+	private List<int[][]> ponderVariation = null;
+
+
+	/**
+	 * Příznak zrušení naposledy vyžádaného hledání nejlepšího tahu (každé hledání má vlastní).
+	 */
+	private volatile AtomicBoolean cancelled = new AtomicBoolean(false);
+
+
+	/**
+	 * Statistiky posledního hledání nejlepšího tahu.
+	 */
+	private volatile SearchStatistics statistics = new SearchStatistics();
+
+
+	/**
+	 * Hloubka poslední dokončené iterace přemýšlení (-1 = žádná).
+	 */
+	private int ponderDepth = -1;
+
+
 	/**
 	 * @param difficulty
 	 */
-	public ComputerPlayer(int difficulty)
+	public ComputerPlayer(int difficulty)
+	{
+		this(difficulty, 0);
+	}
+
+
+	/**
+	 * @param difficulty
+	 * @param timeLimit		časový limit na jeden tah (ms), 0 = bez limitu
+	 */
+	public ComputerPlayer(int difficulty, int timeLimit)
+	{
+		this(difficulty, timeLimit, TranspositionTable.DEFAULT_SIZE_MB);
+	}
+
+
+	/**
+	 * @param difficulty
+	 * @param timeLimit		časový limit na jeden tah (ms), 0 = bez limitu
+	 * @param tableSizeMB	paměťový rozpočet transpoziční tabulky (MB)
+	 */
+	public ComputerPlayer(int difficulty, int timeLimit, int tableSizeMB)
+	{
+		this(difficulty, timeLimit, tableSizeMB, 1);
+	}
+
+
+	/**
+	 * @param difficulty
+	 * @param timeLimit		časový limit na jeden tah (ms), 0 = bez limitu
+	 * @param tableSizeMB	paměťový rozpočet transpoziční tabulky (MB)
+	 * @param threads		počet vláken prohledávání
+	 */
+	public ComputerPlayer(int difficulty, int timeLimit, int tableSizeMB, int threads)
+	{
+		this.difficulty		= difficulty;
+		this.timeLimit		= timeLimit;
+		this.tableSizeMB	= tableSizeMB;
+		this.threads		= Math.max(1, threads);
+	}
+
+
+	/**
+	 * Vrátí obtížnost poč. hráče.
+	 *
+	 * @return
+	 */
+	public int getDifficulty()
+	{
+		return difficulty;
+	}
+
+
+	/**
+	 * Vrátí časový limit na jeden tah (ms).
+	 *
+	 * @return
+	 */
+	public int getTimeLimit()
+	{
+		return timeLimit;
+	}
+
+
+	/**
+	 * Nastaví časový limit na jeden tah (ms), 0 = bez limitu.
+	 *
+	 * @param timeLimit
+	 */
+	public void setTimeLimit(int timeLimit)
+	{
+		this.timeLimit = timeLimit;
+	}
+
+
+	/**
+	 * Vrátí počet vláken prohledávání.
+	 *
+	 * @return
+	 */
+	public int getThreads()
+	{
+		return threads;
+	}
+
+
+	/**
+	 * Nastaví počet vláken prohledávání (1 = sériové prohledávání).
+	 *
+	 * @param threads
+	 */
+	public void setThreads(int threads)
+	{
+		this.threads = Math.max(1, threads);
+	}
+
+
+	/**
+	 * Vrátí způsob paralelního prohledávání.
+	 *
+	 * @return
+	 */
+	public int getSearchMode()
+	{
+		return searchMode;
+	}
+
+
+	/**
+	 * Nastaví způsob paralelního prohledávání (SEARCH_LAZY_SMP, SEARCH_ROOT_SPLIT).
+	 *
+	 * @param searchMode
+	 */
+	public void setSearchMode(int searchMode)
+	{
+		this.searchMode = searchMode;
+	}
+
+
+	/**
+	 * Vrátí hlavní variantu posledního hledání nejlepšího tahu (nejlepší tah a očekávané odpovědi).
+	 *
+	 * @return
+	 */
+	public List<int[][]> getPrincipalVariation()
+	{
+		return principalVariation;
+	}
+
+
+	/**
+	 * Vrátí statistiky posledního hledání nejlepšího tahu (prázdné při tahu z knihovny
+	 * nebo z přemýšlení během tahu soupeře).
+	 *
+	 * @return
+	 */
+	public SearchStatistics getStatistics()
+	{
+		return statistics;
+	}
+
+
+	/**
+	 * Vyžádá nové hledání nejlepšího tahu - dřívější zrušení pro něj už neplatí.
+	 *
+	 * Volá se v okamžiku, kdy je hledání požadováno (např. před předáním hledání jinému
+	 * vláknu). Zrušení, které přijde mezi požadavkem a začátkem hledání, se tak neztratí.
+	 */
+	public void requestSearch()
+	{
+		cancelled = new AtomicBoolean(false);
+	}
+
+
+	/**
+	 * Zruší probíhající nebo vyžádané hledání nejlepšího tahu (lze volat z jiného vlákna).
+	 *
+	 * Každé vlákno prohledávání to zjistí nejpozději po 1024 uzlech; getBestMove pak
+	 * vrátí null. Platí až do dalšího vyžádání hledání (requestSearch).
+	 */
+	public void cancelSearch()
+	{
+		cancelled.set(true);
+	}
+
+
+	/**
+	 * Zjistí, zda-li hráč přemýšlí během tahu soupeře (pondering).
+	 *
+	 * @return
+	 */
+	public boolean isPonderEnabled()
+	{
+		return ponderEnabled;
+	}
+
+
+	/**
+	 * Zapne/vypne přemýšlení během tahu soupeře (pondering).
+	 *
+	 * @param ponderEnabled
+	 */
+	public void setPonderEnabled(boolean ponderEnabled)
+	{
+		this.ponderEnabled = ponderEnabled;
+
+		if (!ponderEnabled)
+		{
+			stopPondering();
+		}
+	}
+
+
+	/**
+	 * Spustí přemýšlení během tahu soupeře.
+	 *
+	 * Na pozadí se prohledává pozice po tahu soupeře, který očekává hlavní varianta
+	 * posledního hledání nejlepšího tahu. Výsledky se ukládají do transpoziční tabulky
+	 * hráče; pokud soupeř zahraje očekávaný tah a přemýšlení dosáhlo plné hloubky,
+	 * getBestMove vrátí jeho tah rovnou.
+	 *
+	 * @param judge
+	 * @param oponent	hráč, který je na tahu (soupeř počítače)
+	 */
+	public synchronized void startPondering(Judge judge, int oponent)
+	{
+		stopPondering();
+
+		ponderMove	= null;
+		ponderDepth	= -1;
+
+		List<int[][]> variation = principalVariation;
+
+		if (!ponderEnabled || variation.size() < 2)
+		{
+			return;
+		}
+
+		int[][] expected	= variation.get(1);
+		int expectedMove	= Judge.packMove(PlayBoard.getSquareIndex(expected[0][0], expected[0][1]), PlayBoard.getSquareIndex(expected[1][0], expected[1][1]));
+		Judge ponderJudge	= (Judge) judge.clone();
+		int[] moves			= new int[Judge.MAX_MOVES_COUNT];
+		int count			= ponderJudge.generateMoves(oponent, moves);
+		boolean legal		= false;
+
+		for (int i = 0; i < count && !legal; i++)
+		{
+			legal = moves[i] == expectedMove;
+		}
+
+		if (!legal)
+		{
+			return;
+		}
+
+		ponderJudge.playMove(expectedMove, oponent);
+
+		final int playerOnMove = ponderJudge.getOtherPlayer(oponent);
+
+		// Po očekávaném tahu hra končí - není nad čím přemýšlet.
+		if (ponderJudge.isPlayerWinner(oponent) || ponderJudge.isBlindMovesCountReached())
+		{
+			return;
+		}
+
+		TranspositionTable playerTable = getTranspositionTable();
+		playerTable.newSearch();
+
+		final SearchEngine engine = new SearchEngine(ponderJudge, playerTable, evaluator);
+		engine.setTablebase(tablebase);
+
+		ponderHash				= ponderJudge.getBoard().getHash(playerOnMove);
+		ponderBlindMovesCount	= ponderJudge.getBlindMovesCount();
+		ponderEngine			= engine;
+		ponderThread			= new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					for (int deep = 0; deep <= difficulty; deep++)
+					{
+						int[][] move = engine.getBestMove(playerOnMove, deep, null, 0);
+
+						ponderMove		= move;
+						ponderVariation	= engine.getPrincipalVariation();
+						ponderDepth		= deep;
+					}
+				}
+				catch (PlayerException | SearchAbortedException ex)
+				{
+					// Přemýšlení bylo zastaveno - výsledky jsou v transpoziční tabulce.
+				}
+			}
+		}, "ponder");
+
+		ponderThread.setDaemon(true);
+		ponderThread.start();
+	}
+
+
+	/**
+	 * Zastaví přemýšlení během tahu soupeře a počká na ukončení jeho vlákna.
+	 */
+	public synchronized void stopPondering()
+	{
+		if (ponderThread == null)
+		{
+			return;
+		}
+
+		ponderEngine.stop();
+
+		try
+		{
+			ponderThread.join();
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		ponderThread	= null;
+		ponderEngine	= null;
+	}
+
+
+	/**
+	 * Zastaví přemýšlení a vrátí jeho tah, pokud bylo přemýšleno nad aktuální pozicí
+	 * do plné hloubky (jinak null).
+	 *
+	 * @param judge
+	 * @param playerOnMove
+	 * @return
+	 */
+	private synchronized int[][] takePonderMove(Judge judge, int playerOnMove)
 	{
-		this.difficulty = difficulty;
+		stopPondering();
+
+		int[][] move = ponderMove;
+
+		ponderMove = null;
+
+		if (move == null || ponderDepth < difficulty || ponderHash != judge.getBoard().getHash(playerOnMove) || ponderBlindMovesCount != judge.getBlindMovesCount())
+		{
+			return null;
+		}
+
+		principalVariation = ponderVariation;
+
+		return move;
 	}
 
 
 	/**
-	 * Vrátí obtížnost poč. hráče.
+	 * Načte výchozího hodnotitele - váhy ze souboru vah, pokud existuje a je platný.
 	 *
 	 * @return
 	 */
-	public int getDifficulty()
+	private static Evaluator loadDefaultEvaluator()
 	{
-		return difficulty;
+		File file = new File(WEIGHTS_FILE);
+
+		if (file.isFile())
+		{
+			try
+			{
+				return IncrementalEvaluator.load(file);
+			}
+			catch (StorageException | IllegalArgumentException e)
+			{
+				System.err.println("Weights file " + file + " was not loaded: " + e.getMessage());
+			}
+		}
+
+		return new IncrementalEvaluator();
+	}
+
+
+	/**
+	 * Načte výchozí knihovnu zahájení ze souboru knihovny, pokud existuje a je platný.
+	 *
+	 * @return
+	 */
+	private static OpeningBook loadDefaultOpeningBook()
+	{
+		File file = new File(BOOK_FILE);
+
+		if (file.isFile())
+		{
+			try
+			{
+				return OpeningBook.load(file);
+			}
+			catch (StorageException e)
+			{
+				System.err.println("Opening book " + file + " was not loaded: " + e.getMessage());
+			}
+		}
+
+		return null;
+	}
+
+
+	/**
+	 * Načte výchozí tablebázi koncovek z adresáře tablebáze, pokud existuje a je platná.
+	 *
+	 * @return
+	 */
+	private static EndgameTablebase loadDefaultTablebase()
+	{
+		File directory = new File(TABLEBASE_DIRECTORY);
+
+		if (directory.isDirectory())
+		{
+			try
+			{
+				EndgameTablebase loaded = EndgameTablebase.load(directory);
+
+				if (loaded.getMaxStones() >= 0)
+				{
+					return loaded;
+				}
+			}
+			catch (StorageException e)
+			{
+				System.err.println("Tablebase " + directory + " was not loaded: " + e.getMessage());
+			}
+		}
+
+		return null;
+	}
+
+
+	/**
+	 * Vrátí knihovnu zahájení (nebo null).
+	 *
+	 * @return
+	 */
+	public OpeningBook getOpeningBook()
+	{
+		return openingBook;
+	}
+
+
+	/**
+	 * Nastaví knihovnu zahájení (null = bez knihovny).
+	 *
+	 * @param openingBook
+	 */
+	public void setOpeningBook(OpeningBook openingBook)
+	{
+		this.openingBook = openingBook;
+	}
+
+
+	/**
+	 * Vrátí tablebázi koncovek (nebo null).
+	 *
+	 * @return
+	 */
+	public EndgameTablebase getTablebase()
+	{
+		return tablebase;
+	}
+
+
+	/**
+	 * Nastaví tablebázi koncovek (null = bez tablebáze).
+	 *
+	 * Výsledky v transpoziční tabulce tím ztrácí platnost.
+	 *
+	 * @param tablebase
+	 */
+	public void setTablebase(EndgameTablebase tablebase)
+	{
+		this.tablebase = tablebase;
+
+		if (table != null)
+		{
+			table.clear();
+		}
+	}
+
+
+	/**
+	 * Vrátí výchozího hodnotitele pozic (načteného při startu).
+	 *
+	 * @return
+	 */
+	public static Evaluator getDefaultEvaluator()
+	{
+		return DEFAULT_EVALUATOR;
+	}
+
+
+	/**
+	 * Vrátí hodnotitele pozic.
+	 *
+	 * @return
+	 */
+	public Evaluator getEvaluator()
+	{
+		return evaluator;
+	}
+
+
+	/**
+	 * Nastaví hodnotitele pozic (výsledky v transpoziční tabulce tím ztrácí platnost).
+	 *
+	 * @param evaluator
+	 */
+	public void setEvaluator(Evaluator evaluator)
+	{
+		this.evaluator = evaluator;
+
+		if (table != null)
+		{
+			table.clear();
+		}
+	}
+
+
+	/**
+	 * Vrátí transpoziční tabulku hráče.
+	 *
+	 * @return
+	 */
+	public TranspositionTable getTranspositionTable()
+	{
+		if (table == null)
+		{
+			table = new TranspositionTable(tableSizeMB, TranspositionTable.REPLACE_DEPTH_PREFERRED);
+		}
+
+		return table;
 	}
 
 
 	/**
 	 * Definice hodnoty pro jasnou výhru/prohru.
 	 */
-	private static int MAX = 100;
+	static int MAX = 10000;
 
 
 	/**
 	 * Definice hodnoty pro téměř jasnou výhru/prohru.
 	 */
-	private static int LOT = 90;
+	static int LOT = 9000;
 
 
 	/**
@@ -98,6 +772,42 @@ public class ComputerPlayer extends Player
 	}
 
 
+	/**
+	 * Pole posluchačů události SearchProgressEvent.
+	 */
+	private static List<SearchProgressListener> progressListeners = new ArrayList<>();
+
+
+	/**
+	 * Přidá posluchače průběhu hledání nejlepšího tahu.
+	 *
+	 * @param listener
+	 */
+	public static void addSearchProgressListener(SearchProgressListener listener)
+	{
+		if (progressListeners.contains(listener))
+		{
+			return;
+		}
+
+		progressListeners.add(listener);
+	}
+
+
+	/**
+	 * Obvolání posluchačů po dokončené iteraci hledání nejlepšího tahu.
+	 *
+	 * @param event
+	 */
+	private static void fireSearchProgress(SearchProgressEvent event)
+	{
+		for (SearchProgressListener listener : progressListeners)
+		{
+			listener.searchProgress(event);
+		}
+	}
+
+
 	/**
 	 * Vrátí vyhodnocení hrací desky pro danné hráče.
 	 *
@@ -105,7 +815,7 @@ public class ComputerPlayer extends Player
 	 * @param judge
 	 * @return
 	 */
-	private static int getBoardValue(int playerValue, Judge judge)
+	static int getBoardValue(int playerValue, Judge judge)
 	{
 		PlayBoard board = judge.getBoard();
 
@@ -154,7 +864,7 @@ public class ComputerPlayer extends Player
 	 * @param playerOnMove
 	 * @return
 	 */
-	private static int getOtherPlayer(int playerOnMove)
+	static int getOtherPlayer(int playerOnMove)
 	{
 		return playerOnMove == TablutSquare.RUSSIAN ? TablutSquare.SWEDEN : TablutSquare.RUSSIAN;
 	}
@@ -164,7 +874,7 @@ public class ComputerPlayer extends Player
 	 * @param valuation
 	 * @return
 	 */
-	private static int further(int valuation)
+	static int further(int valuation)
 	{
 		if (valuation > LOT)
 		{
@@ -183,7 +893,7 @@ public class ComputerPlayer extends Player
 	 * @param valuation
 	 * @return
 	 */
-	private static int closer(int valuation)
+	static int closer(int valuation)
 	{
 		if (valuation > LOT)
 		{
@@ -199,186 +909,257 @@ public class ComputerPlayer extends Player
 
 
 	/**
-	 * Algoritmus AlfaBeta.
+	 * Vrátí nejlepší možný tah pro hráče na tahu.
+	 *
+	 * Pokud se během tahu soupeře přemýšlelo nad touto pozicí do plné hloubky, vrátí
+	 * výsledek přemýšlení. Pokud je pozice v knihovně zahájení, vrátí tah z knihovny
+	 * bez prohledávání. Jinak prohledává iterativně do hloubky 0..obtížnost s transpoziční
+	 * tabulkou hráče (včetně výsledků přemýšlení); pozice z tablebáze koncovek (pokud je
+	 * načtena) se ohodnotí přesně. Po každé dokončené iteraci se obvolají posluchači průběhu.
+	 * Pokud je nastaven časový limit a vyprší, vrátí nejlepší tah poslední dokončené iterace.
+	 * Zrušené hledání (cancelSearch) vrátí null.
 	 *
-	 * Vrací ohodnocení aktuálního stavu hráče na základě ořezávání alfa-beta ( http://en.wikipedia.org/wiki/Alpha%E2%80%93beta_pruning ).
+	 * Při více vláknech buď pomocná vlákna prohledávají stejnou pozici (s jiným pořadím
+	 * tahů a posunutou hloubkou) a plní sdílenou transpoziční tabulku (Lazy SMP), nebo se
+	 * rozdělí tahy z kořene. Rozdělení kořene se nepoužije při ignorování několika
+	 * nejlepších tahů, které závisí na pořadí prohledávání.
 	 *
 	 * @param judge
 	 * @param playerOnMove
-	 * @param deep
-	 * @param alfa
-	 * @param beta
-	 * @return
+	 * @param ignoredMove
+	 * @param ignoredMovesDepth
+	 * @return nejlepší tah, nebo null, pokud bylo hledání zrušeno
+	 * @throws PlayerException
 	 */
-	private static int alfabeta(Judge judge, int playerOnMove, int deep, int alfa, int beta)
+	public int[][] getBestMove(Judge judge, int playerOnMove, int[][] ignoredMove, int ignoredMovesDepth) throws PlayerException
 	{
-		// Pokud hráč na tahu zvítězil, vrátíme MAX.
-		if (judge.isPlayerWinner(playerOnMove))
-		{
-			return MAX;
-		}
+		statistics = new SearchStatistics();
 
-		// Pokud hráč na tahu prohrál, vrátíme -MAX.
-		if (judge.isPlayerLooser(playerOnMove))
-		{
-			return -MAX;
-		}
+		// Příznak zrušení tohoto hledání (platí, i pokud bylo zrušeno ještě před začátkem).
+		AtomicBoolean searchCancelled = cancelled;
 
-		// Pokud jsme dosáhli max. hloubky, vrátíme ohodnocení desky.
-		if (deep <= 0)
+		if (searchCancelled.get())
 		{
-			return getBoardValue(playerOnMove, judge);
+			return null;
 		}
 
-		int valuation;
-
-		// Načteme všechny možné tahy.
-		List<int[][]> moves = getAllPossibleMoves(judge, getPlayerFields(judge, playerOnMove));
+		// Přemýšlení během tahu soupeře skončilo - soupeř již táhl.
+		int[][] ponderedMove = takePonderMove(judge, playerOnMove);
 
-		for (int[][] move : moves)
+		// Při ignorování tahů (opakování pozic) knihovnu ani výsledek přemýšlení nepoužijeme.
+		if (ponderedMove != null && ignoredMove == null && ignoredMovesDepth <= 0)
 		{
-			// Zkopírujeme rozhodčího.
-			Judge child = (Judge) judge.clone();
-
-			// Zahrajeme tah.
-			child.playMove(move[0], move[1], playerOnMove);
+			return ponderedMove;
+		}
 
-			// Zjistíme ohodnocení konkrétního tahu (do hloubky).
-			valuation = -alfabeta(child, getOtherPlayer(playerOnMove), deep - 1, further(-beta), further(-alfa));
-			valuation = closer(valuation);
+		// Pozice z knihovny zahájení se neprohledává.
+		if (openingBook != null && ignoredMove == null && ignoredMovesDepth <= 0)
+		{
+			int[][] bookMove = openingBook.getMove(judge, playerOnMove);
 
-			// Pokud je ohodnocení větší, než alfa, nahradíme ji a porovnáme s betou.
-			if (valuation > alfa)
+			if (bookMove != null)
 			{
-				alfa = valuation;
+				List<int[][]> variation = new ArrayList<>();
+				variation.add(bookMove);
+				principalVariation = variation;
 
-				// Ořezání.
-				if (valuation >= beta)
-				{
-					return beta;
-				}
+				return bookMove;
 			}
 		}
 
-		return alfa;
-	}
+		long startTime	= System.currentTimeMillis();
+		long deadline	= Long.MAX_VALUE;
+		boolean rootSplit = threads > 1 && searchMode == SEARCH_ROOT_SPLIT && ignoredMovesDepth <= 0;
 
+		TranspositionTable playerTable = getTranspositionTable();
+		playerTable.newSearch();
 
-	/**
-	 * Vrátí nejlepší možný tah pro danného hráče.
-	 *
-	 * @param judge
-	 * @param playerOnMove
-	 * @param deep
-	 * @param ignoredMove
-	 * @return
-	 * @throws PlayerException
-	 */
-	public static int[][] getBestMove(Judge judge, int playerOnMove, int deep, int[][] ignoredMove, int ignoredMovesDepth) throws PlayerException
-	{
-		// Nastavíme alfu na -MAX.
-		int alfa = -MAX, valuation;
+		SearchEngine engine = new SearchEngine(judge, playerTable, evaluator);
+		engine.setTablebase(tablebase);
+		engine.setCancelled(searchCancelled);
+		int[][] bestMove = null;
 
-		// Načteme všechny maožné tahy hráče.
-		List<int[][]> moves = getAllPossibleMoves(judge, getPlayerFields(judge, playerOnMove));
+		// Statistiky všech vláken a statistiky pracovních vláken při rozdělení kořene.
+		SearchStatistics searchStatistics	= new SearchStatistics();
+		SearchStatistics splitStatistics	= new SearchStatistics();
 
-		// Pokud hráč nemá žádné tahy, vyhodíme výjimku.
-		if (moves.isEmpty())
+		// Spustíme pomocná vlákna Lazy SMP.
+		List<SearchEngine> helpers = new ArrayList<>();
+		ExecutorService helpersExecutor = null;
+
+		if (threads > 1 && searchMode == SEARCH_LAZY_SMP)
 		{
-			throw new PlayerException("Player has no moves to do. Game Over");
-		}
+			helpersExecutor = Executors.newFixedThreadPool(threads - 1);
+
+			for (int i = 1; i < threads; i++)
+			{
+				SearchEngine helper = new SearchEngine(judge, playerTable, evaluator);
+				helper.setTablebase(tablebase);
+				helper.setRootOffset(i);
+				helpers.add(helper);
 
-		// Jako nejlepší tah nastavíme první.
-		int[][] bestMove = moves.get(0);
+				helpersExecutor.submit(createHelperTask(helper, playerOnMove, ignoredMove, i % 2));
+			}
+		}
 
-		for (int[][] move : moves)
+		try
 		{
-			// Přeskočíme ignorovaný tah.
-			if (ignoredMove != null && Arrays.equals(move[0], ignoredMove[0]) && Arrays.equals(move[1], ignoredMove[1]))
+			for (int deep = 0; deep <= difficulty && !searchCancelled.get(); deep++)
 			{
-				continue;
-			}
+				try
+				{
+					if (rootSplit)
+					{
+						bestMove = SearchEngine.getBestMoveParallel(judge, playerTable, evaluator, tablebase, playerOnMove, deep, ignoredMove, threads, deadline, searchCancelled, splitStatistics);
+
+						// Při rozdělení kořene známe pouze nejlepší tah.
+						List<int[][]> variation = new ArrayList<>();
+						variation.add(bestMove);
+						principalVariation = variation;
+					}
+					else
+					{
+						bestMove = engine.getBestMove(playerOnMove, deep, ignoredMove, ignoredMovesDepth);
+						principalVariation = engine.getPrincipalVariation();
+					}
+				}
 
-			// Zkopírujeme rozhodčího.
-			Judge child = (Judge) judge.clone();
+				// Vypršel časový limit nebo bylo hledání zrušeno - použijeme výsledek poslední dokončené iterace.
+				catch (SearchAbortedException ex)
+				{
+					break;
+				}
 
-			// Zahrajeme tah.
-			child.playMove(move[0], move[1], playerOnMove);
+				collectStatistics(searchStatistics, engine, helpers, splitStatistics);
+				searchStatistics.recordDepth(deep, searchStatistics.getNodes(), System.currentTimeMillis() - startTime);
 
-			// Zjistíme ohodnocení konkrétního tahu (do hloubky).
-			valuation = -alfabeta(child, getOtherPlayer(playerOnMove), deep, -MAX, further(-alfa));
-			valuation = closer(valuation);
+				fireSearchProgress(new SearchProgressEvent(this, deep, searchStatistics.copy(), bestMove));
 
-			// Pokud je ohodnocení větší, než alfa, nahradíme ji a nastavíme jako tah, jako nejlepší.
-			if (valuation > alfa)
-			{
-				if (ignoredMovesDepth > 0)
+				// Časový limit platí až po první dokončené iteraci, abychom měli vždy nějaký tah.
+				if (timeLimit > 0)
 				{
-					ignoredMovesDepth--;
-					continue;
+					deadline = startTime + timeLimit;
+					engine.setDeadline(deadline);
+
+					if (System.currentTimeMillis() >= deadline)
+					{
+						break;
+					}
 				}
+			}
+		}
 
-				alfa = valuation;
-				bestMove = move;
+		// Po skončení hlavního vlákna zastavíme pomocná vlákna.
+		finally
+		{
+			for (SearchEngine helper : helpers)
+			{
+				helper.stop();
+			}
 
-				// V případě jisté výhry za jeden tah nebudem pokračovat dál.
-				if (valuation == MAX - 1)
-				{
-					break;
-				}
+			if (helpersExecutor != null)
+			{
+				helpersExecutor.shutdownNow();
 			}
 		}
 
+		// Započítáme i uzly nedokončené iterace.
+		collectStatistics(searchStatistics, engine, helpers, splitStatistics);
+		searchStatistics.setTime(System.currentTimeMillis() - startTime);
+		statistics = searchStatistics;
+
+		Logger.getLogger(ComputerPlayer.class.getName()).log(Level.FINE, "Search statistics: {0}", searchStatistics);
+
+		// Výsledek zrušeného hledání nepoužijeme.
+		if (searchCancelled.get())
+		{
+			return null;
+		}
+
 		return bestMove;
 	}
 
 
 	/**
-	 * Načte koordináty všech kamenů danného hráče.
+	 * Sečte statistiky všech vláken hledání (časy dokončených hloubek zůstávají).
 	 *
-	 * @param judge
-	 * @param playerValue
-	 * @return
+	 * @param statistics
+	 * @param engine
+	 * @param helpers
+	 * @param splitStatistics	statistiky pracovních vláken rozdělení kořene
 	 */
-	private static List<int[]> getPlayerFields(Judge judge, int playerValue)
+	private static void collectStatistics(SearchStatistics statistics, SearchEngine engine, List<SearchEngine> helpers, SearchStatistics splitStatistics)
 	{
-		if (judge.isRussian(playerValue))
+		statistics.reset();
+		statistics.add(engine.getStatistics());
+
+		for (SearchEngine helper : helpers)
 		{
-			return judge.getBoard().getValuePositions(playerValue);
+			statistics.add(helper.getStatistics());
 		}
-		else
-		{
-			// U švédů přidá nejprve krále a pak zbylé kameny.
-			List<int[]> fields = new ArrayList<>();
-			fields.add(judge.getBoard().getKingsPosition());
-			fields.addAll(judge.getBoard().getValuePositions(playerValue));
 
-			return fields;
+		synchronized (splitStatistics)
+		{
+			statistics.add(splitStatistics);
 		}
 	}
 
 
 	/**
-	 * Vrátí všechny možné tahy danného hráče.
+	 * Vytvoří úlohu pomocného vlákna Lazy SMP.
 	 *
-	 * @param judge
-	 * @param fields
+	 * Pomocné vlákno prohledává iterativně stejnou pozici (případně o jednu úroveň hlouběji)
+	 * a výsledky ukládá pouze do sdílené transpoziční tabulky. Běží, dokud není zastaveno.
+	 *
+	 * @param helper
+	 * @param playerOnMove
+	 * @param ignoredMove
+	 * @param depthOffset	posun hloubky oproti hlavnímu vláknu
 	 * @return
 	 */
-	private static List<int[][]> getAllPossibleMoves(Judge judge, List<int[]> fields)
+	private Runnable createHelperTask(final SearchEngine helper, final int playerOnMove, final int[][] ignoredMove, final int depthOffset)
 	{
-		List<int[]> fieldMoves;
-		List<int[][]> moves = new ArrayList<>();
-
-		for (int[] field : fields)
+		return new Runnable()
 		{
-			fieldMoves = judge.getPossibleMoves(field);
-			for (int[] fieldMove : fieldMoves)
+			@Override
+			public void run()
 			{
-				moves.add(new int[][]{field, fieldMove});
+				try
+				{
+					for (int deep = depthOffset; deep <= difficulty + depthOffset; deep++)
+					{
+						helper.getBestMove(playerOnMove, deep, ignoredMove, 0);
+					}
+				}
+				catch (PlayerException | SearchAbortedException ex)
+				{
+					// Pomocné vlákno končí - jeho výsledky jsou již v transpoziční tabulce.
+				}
 			}
-		}
+		};
+	}
+
 
-		return moves;
+	/**
+	 * Vrátí nejlepší možný tah pro danného hráče.
+	 *
+	 * @param judge
+	 * @param playerOnMove
+	 * @param deep
+	 * @param ignoredMove
+	 * @param ignoredMovesDepth
+	 * @return
+	 * @throws PlayerException
+	 */
+	public static int[][] getBestMove(Judge judge, int playerOnMove, int deep, int[][] ignoredMove, int ignoredMovesDepth) throws PlayerException
+	{
+		try
+		{
+			return new SearchEngine(judge, null).getBestMove(playerOnMove, deep, ignoredMove, ignoredMovesDepth);
+		}
+		catch (SearchAbortedException ex)
+		{
+			throw new PlayerException("Searching for the best move was aborted.", ex);
+		}
 	}
 }
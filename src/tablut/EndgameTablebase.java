@@ -0,0 +1,388 @@
+package tablut;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import tablut.exceptions.StorageException;
+
+/**
+ * Tablebáze koncovek.
+ *
+ * Pro pozice, ve kterých Švédům zbyl pouze král a Rusům nejvýše několik kamenů,
+ * uchovává přesný výsledek z pohledu hráče na tahu (výhra, prohra, remíza) a u výhry
+ * a prohry i vzdálenost do konce partie (půltahy při nejlepší hře obou stran).
+ * V takových pozicích nemůže nikdo zajmout obyčejný kámen (král se zajímání
+ * neúčastní a Rusové mohou zajmout pouze krále), takže se počet kamenů
+ * nemění a pozice s daným počtem ruských kamenů tvoří uzavřenou množinu.
+ * Hráč, který nemá žádný tah, prohrál.
+ *
+ * Protože se v těchto pozicích nezajímá, přibývají tahy bez zajmutí s každým půltahem.
+ * Výhra či prohra proto platí, jen pokud partie skončí dříve, než se dosáhne maximálního
+ * počtu tahů bez zajmutí (Judge.BLIND_MOVES_MAX_COUNT) - jinak je pozice remízou.
+ *
+ * Pro každý počet ruských kamenů je jeden soubor s hlavičkou (značka, verze, počet kamenů)
+ * a jedním bajtem na pozici (2 bity výsledek, 6 bitů vzdálenost). Soubory se mapují
+ * do paměti, takže se načítá pouze to, co prohledávání skutečně použije.
+ *
+ * Index pozice: [hráč na tahu][pole krále][kombinace polí ruských kamenů], kombinace
+ * se čísluje kombinačním číselným systémem (seřazená pole s0 < s1 < ... -> součet C(si, i + 1)).
+ *
+ * Tablebázi generuje tablut.tools.TablebaseGenerator.
+ *
+ * @author Ondřej Tom
+ */
+public class EndgameTablebase
+{
+	/**
+	 * Výsledek - remíza (nebo pozice, kterou nikdo nevynutí).
+	 */
+	public static final int DRAW = 0;
+
+
+	/**
+	 * Výsledek - hráč na tahu vyhraje.
+	 */
+	public static final int WIN = 1;
+
+
+	/**
+	 * Výsledek - hráč na tahu prohraje.
+	 */
+	public static final int LOSS = 2;
+
+
+	/**
+	 * Výsledek - neplatná pozice (kameny na stejném poli, ruský kámen na "protected" poli).
+	 */
+	public static final int INVALID = 3;
+
+
+	/**
+	 * Výsledek - pozice není v tablebázi.
+	 */
+	public static final int UNKNOWN = -1;
+
+
+	/**
+	 * Maximální počet ruských kamenů, pro který lze tablebázi sestavit.
+	 */
+	public static int MAX_STONES = 4;
+
+
+	/**
+	 * Maximální uložená vzdálenost do konce partie (delší vzdálenosti se ukládají jako tato).
+	 */
+	public static int MAX_DISTANCE = 63;
+
+
+	/**
+	 * Značka souboru tablebáze ("TBKR").
+	 */
+	private static int FILE_MAGIC = 0x54424B52;
+
+
+	/**
+	 * Verze formátu souboru.
+	 */
+	private static int FILE_VERSION = 2;
+
+
+	/**
+	 * Velikost hlavičky souboru (bajty).
+	 */
+	private static int HEADER_SIZE = 16;
+
+
+	/**
+	 * Kombinační čísla C(n, k) pro n = 0..SQUARES_COUNT, k = 0..MAX_STONES.
+	 */
+	private static final long[][] BINOMIALS = new long[PlayBoard.SQUARES_COUNT + 1][MAX_STONES + 1];
+
+	static
+	{
+		for (int n = 0; n <= PlayBoard.SQUARES_COUNT; n++)
+		{
+			BINOMIALS[n][0] = 1;
+
+			for (int k = 1; k <= MAX_STONES && k <= n; k++)
+			{
+				BINOMIALS[n][k] = BINOMIALS[n - 1][k - 1] + (k < n ? BINOMIALS[n - 1][k] : 0);
+			}
+		}
+	}
+
+
+	/**
+	 * Výsledky podle počtu ruských kamenů (null = chybí).
+	 */
+	private MappedByteBuffer[] tables = new MappedByteBuffer[MAX_STONES + 1];
+
+
+	/**
+	 * Pole ruských kamenů pro výpočet indexu pozice (každé vlákno má vlastní).
+	 */
+	private final ThreadLocal<int[]> squaresBuffer = new ThreadLocal<int[]>()
+	{
+		@Override
+		protected int[] initialValue()
+		{
+			return new int[MAX_STONES];
+		}
+	};
+
+
+	/**
+	 * Vrátí počet pozic tablebáze s daným počtem ruských kamenů.
+	 *
+	 * @param stones
+	 * @return
+	 */
+	public static long getPositionsCount(int stones)
+	{
+		return 2L * PlayBoard.SQUARES_COUNT * BINOMIALS[PlayBoard.SQUARES_COUNT][stones];
+	}
+
+
+	/**
+	 * Vrátí počet kombinací polí ruských kamenů (velikost bloku jednoho hráče a pole krále).
+	 *
+	 * @param stones
+	 * @return
+	 */
+	public static long getCombinationsCount(int stones)
+	{
+		return BINOMIALS[PlayBoard.SQUARES_COUNT][stones];
+	}
+
+
+	/**
+	 * Vrátí index pozice.
+	 *
+	 * @param playerOnMove
+	 * @param kingSquare
+	 * @param russians		pole ruských kamenů (vzestupně)
+	 * @param stones		počet ruských kamenů
+	 * @return
+	 */
+	public static long getIndex(int playerOnMove, int kingSquare, int[] russians, int stones)
+	{
+		long index = (playerOnMove == TablutSquare.SWEDEN ? PlayBoard.SQUARES_COUNT : 0) + kingSquare;
+
+		index *= BINOMIALS[PlayBoard.SQUARES_COUNT][stones];
+
+		for (int i = 0; i < stones; i++)
+		{
+			index += BINOMIALS[russians[i]][i + 1];
+		}
+
+		return index;
+	}
+
+
+	/**
+	 * Zakóduje výsledek pozice a vzdálenost do konce partie do jednoho bajtu.
+	 *
+	 * @param result
+	 * @param distance	vzdálenost (půltahy), delší než MAX_DISTANCE se omezí
+	 * @return
+	 */
+	public static byte encode(int result, int distance)
+	{
+		return (byte) (result | Math.min(distance, MAX_DISTANCE) << 2);
+	}
+
+
+	/**
+	 * Vrátí výsledek pozice ze zakódované hodnoty.
+	 *
+	 * @param value
+	 * @return
+	 */
+	public static int getResult(byte value)
+	{
+		return value & 3;
+	}
+
+
+	/**
+	 * Vrátí vzdálenost do konce partie ze zakódované hodnoty.
+	 *
+	 * @param value
+	 * @return
+	 */
+	public static int getDistance(byte value)
+	{
+		return (value & 0xFF) >>> 2;
+	}
+
+
+	/**
+	 * Vrátí název souboru tablebáze s daným počtem ruských kamenů.
+	 *
+	 * @param stones
+	 * @return
+	 */
+	public static String getFileName(int stones)
+	{
+		return "king-r" + stones + ".tb";
+	}
+
+
+	/**
+	 * Uloží zakódované výsledky (jeden bajt na pozici, viz encode) do souboru tablebáze.
+	 *
+	 * @param file
+	 * @param stones
+	 * @param results
+	 * @throws StorageException
+	 */
+	public static void save(File file, int stones, byte[] results) throws StorageException
+	{
+		if (results.length != getPositionsCount(stones))
+		{
+			throw new StorageException("Tablebase results don't match the count of stones.");
+		}
+
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+		{
+			output.writeInt(FILE_MAGIC);
+			output.writeInt(FILE_VERSION);
+			output.writeInt(stones);
+			output.writeInt(0);
+			output.write(results);
+		}
+		catch (IOException e)
+		{
+			throw new StorageException("Saving tablebase failed: " + e.getMessage(), e);
+		}
+	}
+
+
+	/**
+	 * Načte (namapuje) všechny soubory tablebáze, které jsou v adresáři.
+	 *
+	 * @param directory
+	 * @return
+	 * @throws StorageException
+	 */
+	public static EndgameTablebase load(File directory) throws StorageException
+	{
+		EndgameTablebase tablebase = new EndgameTablebase();
+
+		for (int stones = 0; stones <= MAX_STONES; stones++)
+		{
+			File file = new File(directory, getFileName(stones));
+
+			if (file.isFile())
+			{
+				tablebase.tables[stones] = map(file, stones);
+			}
+		}
+
+		return tablebase;
+	}
+
+
+	/**
+	 * Namapuje soubor tablebáze do paměti (výsledky bez hlavičky).
+	 *
+	 * @param file
+	 * @param stones
+	 * @return
+	 * @throws StorageException
+	 */
+	private static MappedByteBuffer map(File file, int stones) throws StorageException
+	{
+		long size = HEADER_SIZE + getPositionsCount(stones);
+
+		try (RandomAccessFile input = new RandomAccessFile(file, "r"))
+		{
+			if (input.length() != size || input.readInt() != FILE_MAGIC || input.readInt() != FILE_VERSION || input.readInt() != stones)
+			{
+				throw new StorageException("File " + file + " is not a tablebase of this version.");
+			}
+
+			// Mapování zůstává platné i po zavření souboru.
+			return input.getChannel().map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, size - HEADER_SIZE);
+		}
+		catch (IOException e)
+		{
+			throw new StorageException("Loading tablebase failed: " + e.getMessage(), e);
+		}
+	}
+
+
+	/**
+	 * Vrátí nejvyšší počet ruských kamenů, pro který je tablebáze načtena (nebo -1).
+	 *
+	 * @return
+	 */
+	public int getMaxStones()
+	{
+		for (int stones = MAX_STONES; stones >= 0; stones--)
+		{
+			if (tables[stones] != null)
+			{
+				return stones;
+			}
+		}
+
+		return -1;
+	}
+
+
+	/**
+	 * Vrátí výsledek pozice z pohledu hráče na tahu (WIN, LOSS, DRAW), nebo UNKNOWN,
+	 * pokud pozice v tablebázi není.
+	 *
+	 * Výhra či prohra, která by nastala až po dosažení maximálního počtu tahů bez zajmutí,
+	 * je remízou.
+	 *
+	 * Lze volat z více vláken zároveň.
+	 *
+	 * @param board
+	 * @param playerOnMove
+	 * @param blindMovesCount	počet již zahraných tahů bez zajmutí
+	 * @return
+	 */
+	public int probe(PlayBoard board, int playerOnMove, int blindMovesCount)
+	{
+		int stones = board.getValueOnBoardCount(TablutSquare.RUSSIAN);
+
+		if (stones > MAX_STONES || tables[stones] == null || board.getValueOnBoardCount(TablutSquare.SWEDEN) != 0)
+		{
+			return UNKNOWN;
+		}
+
+		int kingSquare = board.getKingsSquare();
+
+		if (kingSquare < 0)
+		{
+			return UNKNOWN;
+		}
+
+		int[] russians = squaresBuffer.get();
+		board.getValueSquares(TablutSquare.RUSSIAN, russians);
+
+		byte value = tables[stones].get((int) getIndex(playerOnMove, kingSquare, russians, stones));
+		int result = getResult(value);
+
+		if (result == INVALID)
+		{
+			return UNKNOWN;
+		}
+
+		// Partie skončí remízou dříve, než ji vítěz stihne vyhrát.
+		if (result != DRAW && getDistance(value) > Judge.BLIND_MOVES_MAX_COUNT - blindMovesCount)
+		{
+			return DRAW;
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,50 @@
+package tablut;
+
+/**
+ * Rozhraní hodnotitele pozice pro prohledávání.
+ *
+ * Hodnotitel může být připojen k hrací desce (PlayBoard.setEvaluator) - deska mu pak
+ * hlásí každou změnu pole, takže si může průběžně udržovat svůj stav místo
+ * procházení celé desky při každém ohodnocení. Jedna instance smí být připojena
+ * pouze k jedné desce (pro další desku či vlákno slouží copy()).
+ *
+ * @author Ondřej Tom
+ */
+public interface Evaluator
+{
+	/**
+	 * Načte stav hodnotitele z celé hrací desky (voláno při připojení a nahrání desky).
+	 *
+	 * @param board
+	 */
+	public void reset(PlayBoard board);
+
+
+	/**
+	 * Aktualizuje stav hodnotitele po změně pole hrací desky.
+	 *
+	 * @param board
+	 * @param square	index změněného pole
+	 * @param oldValue	původní hodnota pole
+	 * @param newValue	nová hodnota pole
+	 */
+	public void squareChanged(PlayBoard board, int square, int oldValue, int newValue);
+
+
+	/**
+	 * Vrátí ohodnocení pozice z pohledu hráče na tahu.
+	 *
+	 * @param playerOnMove
+	 * @param judge
+	 * @return
+	 */
+	public int evaluate(int playerOnMove, Judge judge);
+
+
+	/**
+	 * Vrátí nového (nepřipojeného) hodnotitele se stejným nastavením.
+	 *
+	 * @return
+	 */
+	public Evaluator copy();
+}
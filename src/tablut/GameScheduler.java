@@ -0,0 +1,263 @@
+package tablut;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import tablut.exceptions.ManagerException;
+
+/**
+ * Plánovač her.
+ *
+ * Místo vlastního vlákna pro každou hru (GameThread) provádí kroky hracích smyček mnoha
+ * her malý sdílený pool vláken. Hra, která čeká na tah člověka, pozastavená či dohraná hra
+ * žádné vlákno neblokuje - krok se naplánuje až po změně stavu hry (signál manažera)
+ * nebo po uplynutí zdržení tahu počítače. Hledání tahů počítače běží v samostatném
+ * výpočetním poolu s omezeným počtem vláken, takže souběžných hledání není víc než jader.
+ *
+ * @author Ondřej Tom
+ */
+public class GameScheduler
+{
+	/**
+	 * Výchozí počet vláken pro kroky hracích smyček.
+	 */
+	public static int DEFAULT_GAME_THREADS = 2;
+
+
+	/**
+	 * Hra v plánovači.
+	 */
+	private class Game implements Runnable
+	{
+		/**
+		 * Manažer hry.
+		 */
+		private Manager manager;
+
+
+		/**
+		 * Příznak naplánovaného (nebo právě prováděného) kroku hry.
+		 */
+		private AtomicBoolean scheduled = new AtomicBoolean(false);
+
+
+		/**
+		 * @param manager
+		 */
+		public Game(Manager manager)
+		{
+			this.manager = manager;
+		}
+
+
+		/**
+		 * Naplánuje krok hry, pokud již naplánován není.
+		 */
+		public void wake()
+		{
+			if (scheduled.compareAndSet(false, true))
+			{
+				try
+				{
+					gamePool.execute(this);
+				}
+				catch (RuntimeException e)
+				{
+					// Plánovač je ukončen.
+					scheduled.set(false);
+				}
+			}
+		}
+
+
+		@Override
+		public void run()
+		{
+			long wait = Manager.STEP_WAIT;
+
+			try
+			{
+				// Kroky provádíme, dokud hra nemusí na něco čekat.
+				do
+				{
+					manager.takeGameLoopSignal();
+				}
+				while (!manager.isStopped() && (wait = manager.runGameStep()) == Manager.STEP_CONTINUE);
+			}
+
+			// Zaloguje zachycenou výjimku a hru ukončí.
+			catch (InterruptedException | ManagerException | RuntimeException ex)
+			{
+				Logger.getLogger(GameScheduler.class.getName()).log(Level.SEVERE, null, ex);
+				manager.stop();
+			}
+			finally
+			{
+				scheduled.set(false);
+			}
+
+			if (manager.isStopped())
+			{
+				games.remove(manager);
+				return;
+			}
+
+			// Zdržení tahu počítače - krok se zopakuje po jeho uplynutí.
+			if (wait > 0)
+			{
+				gamePool.schedule(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						wake();
+					}
+				}, wait, TimeUnit.MILLISECONDS);
+			}
+
+			// Stav hry se změnil během kroku.
+			if (manager.isGameLoopSignalled())
+			{
+				wake();
+			}
+		}
+	}
+
+
+	/**
+	 * Pool vláken pro kroky hracích smyček.
+	 */
+	private ScheduledExecutorService gamePool;
+
+
+	/**
+	 * Výpočetní pool pro hledání tahů počítače.
+	 */
+	private ExecutorService computePool;
+
+
+	/**
+	 * Hry v plánovači.
+	 */
+	private ConcurrentHashMap<Manager, Game> games = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Inicializuje plánovač s výchozím počtem vláken (výpočetní pool podle počtu jader).
+	 */
+	public GameScheduler()
+	{
+		this(DEFAULT_GAME_THREADS, Runtime.getRuntime().availableProcessors());
+	}
+
+
+	/**
+	 * @param gameThreads		počet vláken pro kroky hracích smyček
+	 * @param computeThreads	počet vláken pro hledání tahů počítače
+	 */
+	public GameScheduler(int gameThreads, int computeThreads)
+	{
+		this.gamePool		= Executors.newScheduledThreadPool(Math.max(1, gameThreads));
+		this.computePool	= Executors.newFixedThreadPool(Math.max(1, computeThreads));
+	}
+
+
+	/**
+	 * Spustí hru v plánovači.
+	 *
+	 * @param manager
+	 */
+	public void submit(Manager manager)
+	{
+		Game game = new Game(manager);
+
+		if (games.putIfAbsent(manager, game) != null)
+		{
+			throw new IllegalStateException("Game is already running in the scheduler.");
+		}
+
+		manager.setGameScheduler(this);
+		game.wake();
+	}
+
+
+	/**
+	 * Naplánuje krok hry po změně jejího stavu.
+	 *
+	 * @param manager
+	 */
+	void wake(Manager manager)
+	{
+		Game game = games.get(manager);
+
+		if (game != null)
+		{
+			game.wake();
+		}
+	}
+
+
+	/**
+	 * Spustí hledání tahu počítače ve výpočetním poolu.
+	 *
+	 * Hrací smyčka hry se probudí až po dokončení hledání (výsledek je pak již k dispozici).
+	 *
+	 * @param manager
+	 * @param search
+	 * @return
+	 */
+	Future<int[][]> submitSearch(final Manager manager, Callable<int[][]> search)
+	{
+		FutureTask<int[][]> task = new FutureTask<int[][]>(search)
+		{
+			@Override
+			protected void done()
+			{
+				manager.signalGameLoop();
+			}
+		};
+
+		computePool.execute(task);
+
+		return task;
+	}
+
+
+	/**
+	 * Vrátí počet běžících her.
+	 *
+	 * @return
+	 */
+	public int getGamesCount()
+	{
+		return games.size();
+	}
+
+
+	/**
+	 * Zastaví všechny hry a ukončí vlákna plánovače.
+	 */
+	public void shutdown()
+	{
+		List<Manager> managers = new ArrayList<>(games.keySet());
+
+		for (Manager manager : managers)
+		{
+			manager.stop();
+		}
+
+		games.clear();
+		gamePool.shutdownNow();
+		computePool.shutdownNow();
+	}
+}
@@ -0,0 +1,497 @@
+package tablut;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Properties;
+import tablut.exceptions.StorageException;
+
+/**
+ * Hodnotitel s průběžně udržovaným stavem.
+ *
+ * Kromě počtu kamenů hodnotí vzdálenost krále od nejbližšího rohu, počet volných
+ * cest krále do rohu, počet útočníků (a nepřátelských polí) kolem krále a pohyblivost
+ * kamenů obou hráčů. Stav se aktualizuje při každé změně pole desky - přepočítá se
+ * pohyblivost pouze změněného pole a nejbližších kamenů ve čtyřech směrech a
+ * charakteristiky krále pouze při změně v jeho řádku či sloupci.
+ *
+ * Ohodnocení je počítáno z pohledu švédů a pro ruského hráče se obrací.
+ * Jednotkou je ruský kámen (100). Váhy lze uložit do souboru a načíst (viz tablut.tools.EvaluationTuner).
+ *
+ * @author Ondřej Tom
+ */
+public class IncrementalEvaluator implements Evaluator
+{
+	/**
+	 * Indexy vah.
+	 */
+	public static final int WEIGHT_RUSSIAN_STONE		= 0;
+	public static final int WEIGHT_SWEDE_STONE			= 1;
+	public static final int WEIGHT_KING_DISTANCE		= 2;
+	public static final int WEIGHT_KING_FREE_CORNER		= 3;
+	public static final int WEIGHT_KING_ATTACKER		= 4;
+	public static final int WEIGHT_MOBILITY				= 5;
+	public static final int WEIGHT_KING_MOBILITY		= 6;
+
+
+	/**
+	 * Počet vah.
+	 */
+	public static final int WEIGHTS_COUNT = 7;
+
+
+	/**
+	 * Výchozí váhy.
+	 */
+	public static final int[] DEFAULT_WEIGHTS = {100, 200, 15, 400, 50, 3, 5};
+
+
+	/**
+	 * Názvy vah v souboru vah (ve stejném pořadí jako indexy).
+	 */
+	public static final String[] WEIGHT_NAMES = {"russianStone", "swedeStone", "kingDistance", "kingFreeCorner", "kingAttacker", "mobility", "kingMobility"};
+
+
+	/**
+	 * Vzdálenost pole od nejbližšího rohu (ortogonální kroky) [index pole].
+	 */
+	private static final int[] CORNER_DISTANCE = new int[PlayBoard.SQUARES_COUNT];
+
+
+	static
+	{
+		int x, y, square;
+
+		for (square = 0; square < PlayBoard.SQUARES_COUNT; square++)
+		{
+			x = square / (PlayBoard.SIZE + 1);
+			y = square % (PlayBoard.SIZE + 1);
+
+			CORNER_DISTANCE[square] = Math.min(x, PlayBoard.SIZE - x) + Math.min(y, PlayBoard.SIZE - y);
+		}
+	}
+
+
+	/**
+	 * Váhy charakteristik.
+	 */
+	private int[] weights;
+
+
+	/**
+	 * Hodnoty polí, ze kterých je spočítán stav [index pole].
+	 */
+	private int[] values = new int[PlayBoard.SQUARES_COUNT];
+
+
+	/**
+	 * Pohyblivost kamenů [index pole].
+	 */
+	private int[] squareMobility = new int[PlayBoard.SQUARES_COUNT];
+
+
+	/**
+	 * Součet pohyblivosti kamenů [hodnota pole].
+	 */
+	private int[] mobility = new int[TablutSquare.KING + 1];
+
+
+	/**
+	 * Index pole krále (nebo -1).
+	 */
+	private int kingSquare = -1;
+
+
+	/**
+	 * Počet volných cest krále do rohu.
+	 */
+	private int kingFreeCorners = 0;
+
+
+	/**
+	 * Počet útočníků kolem krále (ruské kameny, chráněná pole a okraj desky).
+	 */
+	private int kingAttackers = 0;
+
+
+	/**
+	 * Pomocné pole pro charakteristiky při ohodnocení.
+	 */
+	private int[] featuresBuffer = new int[WEIGHTS_COUNT];
+
+
+	/**
+	 * Inicializuje hodnotitele s výchozími vahami.
+	 */
+	public IncrementalEvaluator()
+	{
+		this(DEFAULT_WEIGHTS);
+	}
+
+
+	/**
+	 * @param weights	váhy charakteristik (WEIGHTS_COUNT prvků)
+	 */
+	public IncrementalEvaluator(int[] weights)
+	{
+		if (weights.length != WEIGHTS_COUNT)
+		{
+			throw new IllegalArgumentException("Evaluator needs " + WEIGHTS_COUNT + " weights.");
+		}
+
+		this.weights = weights.clone();
+	}
+
+
+	/**
+	 * Vrátí váhy charakteristik.
+	 *
+	 * @return
+	 */
+	public int[] getWeights()
+	{
+		return weights.clone();
+	}
+
+
+	/**
+	 * Načte hodnotitele s vahami ze souboru (chybějící váhy mají výchozí hodnotu).
+	 *
+	 * @param file
+	 * @return
+	 * @throws StorageException
+	 */
+	public static IncrementalEvaluator load(File file) throws StorageException
+	{
+		Properties properties = new Properties();
+		int[] weights = DEFAULT_WEIGHTS.clone();
+
+		try (InputStream input = new FileInputStream(file))
+		{
+			properties.load(input);
+		}
+		catch (IOException e)
+		{
+			throw new StorageException("Loading weights file failed: " + e.getMessage(), e);
+		}
+
+		for (int i = 0; i < WEIGHTS_COUNT; i++)
+		{
+			String value = properties.getProperty(WEIGHT_NAMES[i]);
+
+			if (value == null)
+			{
+				continue;
+			}
+
+			try
+			{
+				weights[i] = Integer.parseInt(value.trim());
+			}
+			catch (NumberFormatException e)
+			{
+				throw new StorageException("Weight " + WEIGHT_NAMES[i] + " is not a number.", e);
+			}
+		}
+
+		return new IncrementalEvaluator(weights);
+	}
+
+
+	/**
+	 * Uloží váhy hodnotitele do souboru.
+	 *
+	 * @param file
+	 * @param comment	komentář v hlavičce souboru (nebo null)
+	 * @throws StorageException
+	 */
+	public void save(File file, String comment) throws StorageException
+	{
+		Properties properties = new Properties();
+
+		for (int i = 0; i < WEIGHTS_COUNT; i++)
+		{
+			properties.setProperty(WEIGHT_NAMES[i], Integer.toString(weights[i]));
+		}
+
+		try (OutputStream output = new FileOutputStream(file))
+		{
+			properties.store(output, comment);
+		}
+		catch (IOException e)
+		{
+			throw new StorageException("Saving weights file failed: " + e.getMessage(), e);
+		}
+	}
+
+
+	/**
+	 * Načte stav hodnotitele z celé hrací desky.
+	 *
+	 * @param board
+	 */
+	@Override
+	public void reset(PlayBoard board)
+	{
+		Arrays.fill(values, 0);
+		Arrays.fill(squareMobility, 0);
+		Arrays.fill(mobility, 0);
+
+		for (int square = 0; square < PlayBoard.SQUARES_COUNT; square++)
+		{
+			refreshSquare(board, square);
+		}
+
+		kingSquare = board.getKingsSquare();
+		refreshKing(board);
+	}
+
+
+	/**
+	 * Aktualizuje pohyblivost změněného pole, nejbližších kamenů v každém směru
+	 * (jen jejich cesty mohly pole protínat) a případně charakteristiky krále.
+	 *
+	 * @param board
+	 * @param square
+	 * @param oldValue
+	 * @param newValue
+	 */
+	@Override
+	public void squareChanged(PlayBoard board, int square, int oldValue, int newValue)
+	{
+		int[] ray;
+
+		refreshSquare(board, square);
+
+		for (int direction = 0; direction < 4; direction++)
+		{
+			ray = PlayBoard.RAYS[square][direction];
+
+			for (int i = 0; i < ray.length; i++)
+			{
+				if (!board.isSquareBlank(ray[i]))
+				{
+					refreshSquare(board, ray[i]);
+					break;
+				}
+			}
+		}
+
+		if (oldValue == TablutSquare.KING || newValue == TablutSquare.KING)
+		{
+			kingSquare = board.getKingsSquare();
+			refreshKing(board);
+		}
+		else if (kingSquare >= 0 && isOnSameLine(square, kingSquare))
+		{
+			refreshKing(board);
+		}
+	}
+
+
+	/**
+	 * Vrátí ohodnocení pozice z pohledu hráče na tahu.
+	 *
+	 * @param playerOnMove
+	 * @param judge
+	 * @return
+	 */
+	@Override
+	public int evaluate(int playerOnMove, Judge judge)
+	{
+		int valuation = 0;
+
+		fillFeatures(judge.getBoard(), featuresBuffer);
+
+		for (int i = 0; i < WEIGHTS_COUNT; i++)
+		{
+			valuation += weights[i] * featuresBuffer[i];
+		}
+
+		valuation = limitValuation(valuation);
+
+		return judge.isSweden(playerOnMove) ? valuation : -valuation;
+	}
+
+
+	/**
+	 * Omezí ohodnocení tak, aby nezasáhlo do hodnot jasné výhry/prohry.
+	 *
+	 * @param valuation
+	 * @return
+	 */
+	public static int limitValuation(int valuation)
+	{
+		return Math.max(-ComputerPlayer.LOT, Math.min(ComputerPlayer.LOT, valuation));
+	}
+
+
+	/**
+	 * Vrátí hodnoty charakteristik z pohledu švédů (ve stejném pořadí jako váhy).
+	 *
+	 * @param board
+	 * @return
+	 */
+	public int[] getFeatures(PlayBoard board)
+	{
+		int[] features = new int[WEIGHTS_COUNT];
+
+		fillFeatures(board, features);
+
+		return features;
+	}
+
+
+	/**
+	 * Zapíše hodnoty charakteristik z pohledu švédů do pole.
+	 *
+	 * @param board
+	 * @param features
+	 */
+	private void fillFeatures(PlayBoard board, int[] features)
+	{
+		features[WEIGHT_RUSSIAN_STONE]		= -board.getValueOnBoardCount(TablutSquare.RUSSIAN);
+		features[WEIGHT_SWEDE_STONE]		= board.getValueOnBoardCount(TablutSquare.SWEDEN);
+		features[WEIGHT_KING_DISTANCE]		= kingSquare >= 0 ? -CORNER_DISTANCE[kingSquare] : 0;
+		features[WEIGHT_KING_FREE_CORNER]	= kingFreeCorners;
+		features[WEIGHT_KING_ATTACKER]		= -kingAttackers;
+		features[WEIGHT_MOBILITY]			= mobility[TablutSquare.SWEDEN] - mobility[TablutSquare.RUSSIAN];
+		features[WEIGHT_KING_MOBILITY]		= mobility[TablutSquare.KING];
+	}
+
+
+	/**
+	 * Vrátí nového hodnotitele se stejnými vahami.
+	 *
+	 * @return
+	 */
+	@Override
+	public Evaluator copy()
+	{
+		return new IncrementalEvaluator(weights);
+	}
+
+
+	/**
+	 * Přepočítá pohyblivost kamene na poli (podle aktuální hodnoty pole).
+	 *
+	 * @param board
+	 * @param square
+	 */
+	private void refreshSquare(PlayBoard board, int square)
+	{
+		mobility[values[square]] -= squareMobility[square];
+
+		values[square]			= board.getSquareValue(square);
+		squareMobility[square]	= values[square] != 0 ? countMobility(board, square, values[square] == TablutSquare.KING) : 0;
+
+		mobility[values[square]] += squareMobility[square];
+	}
+
+
+	/**
+	 * Spočítá počet tahů kamene (stejně jako Judge.generateMoves).
+	 *
+	 * @param board
+	 * @param square
+	 * @param king
+	 * @return
+	 */
+	private static int countMobility(PlayBoard board, int square, boolean king)
+	{
+		int count = 0, i;
+		int[] ray;
+
+		for (int direction = 0; direction < 4; direction++)
+		{
+			ray = PlayBoard.RAYS[square][direction];
+
+			for (i = 0; i < ray.length && board.isSquareBlank(ray[i]) && (king || !PlayBoard.isProtectedSquare(ray[i])); i++)
+			{
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+
+	/**
+	 * Přepočítá charakteristiky krále - volné cesty do rohu a útočníky kolem něj.
+	 *
+	 * @param board
+	 */
+	private void refreshKing(PlayBoard board)
+	{
+		int[] ray;
+		int neighbour, direction;
+
+		kingFreeCorners	= 0;
+		kingAttackers	= 0;
+
+		if (kingSquare < 0)
+		{
+			return;
+		}
+
+		for (direction = 0; direction < 4; direction++)
+		{
+			// Cesta je volná, pokud končí v rohu a nic na ní nestojí.
+			ray = PlayBoard.RAYS[kingSquare][direction];
+
+			if (ray.length > 0 && (PlayBoard.SQUARE_FLAGS[ray[ray.length - 1]] & PlayBoard.FLAG_CORNER) != 0 && isRayBlank(board, ray))
+			{
+				kingFreeCorners++;
+			}
+
+			// Útočníkem je ruský kámen, chráněné pole i okraj desky (stejně jako u Judge.isKingSurrounded).
+			neighbour = PlayBoard.NEIGHBOURS[kingSquare][direction];
+
+			if (neighbour < 0 || board.getSquareValue(neighbour) == TablutSquare.RUSSIAN || PlayBoard.isProtectedSquare(neighbour))
+			{
+				kingAttackers++;
+			}
+		}
+	}
+
+
+	/**
+	 * Zjistí, zda-li jsou všechna pole paprsku prázdná.
+	 *
+	 * @param board
+	 * @param ray
+	 * @return
+	 */
+	private static boolean isRayBlank(PlayBoard board, int[] ray)
+	{
+		for (int square : ray)
+		{
+			if (!board.isSquareBlank(square))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Zjistí, zda-li pole leží ve stejném řádku nebo sloupci.
+	 *
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	private static boolean isOnSameLine(int first, int second)
+	{
+		return
+				first / (PlayBoard.SIZE + 1) == second / (PlayBoard.SIZE + 1) ||
+				first % (PlayBoard.SIZE + 1) == second % (PlayBoard.SIZE + 1)
+		;
+	}
+}
@@ -2,6 +2,7 @@ package tablut;
 
 import tablut.exceptions.JudgeException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -31,12 +32,56 @@ public class Judge implements Cloneable
 	private PlayBoard board;
 
 
+	/**
+	 * Maximální počet tahů jednoho hráče v jedné pozici (velikost bufferu pro generování tahů).
+	 */
+	public static int MAX_MOVES_COUNT = 256;
+
+
+	/**
+	 * Velikost záznamu jednoho tahu v zásobníku tahů zpět.
+	 *
+	 * [odkud x, odkud y, kam x, kam y, předchozí počet tahů bez zajmutí, počet zajatců, (x, y, hodnota) x 4]
+	 */
+	private static int UNDO_FRAME_SIZE = 18;
+
+
 	/**
 	 * Počet zahraných tahů, bez zajmutí.
 	 */
 	private int blindMovesCount = 0;
 
 
+	/**
+	 * Zásobník zahraných tahů pro jejich vrácení (undoMove).
+	 */
+	private int[] undoStack = new int[UNDO_FRAME_SIZE * 32];
+
+
+	/**
+	 * Vrchol zásobníku tahů zpět.
+	 */
+	private int undoTop = 0;
+
+
+	/**
+	 * Pomocné pole pro souřadnice zajatců (max. 4 zajatci po jednom tahu).
+	 */
+	private int[] captivesBuffer = new int[8];
+
+
+	/**
+	 * Pomocné pole pro indexy polí kamenů při generování tahů.
+	 */
+	private int[] squaresBuffer = new int[PlayBoard.SQUARES_COUNT];
+
+
+	/**
+	 * Pořadí směrů, ve kterém se hledají zajatci.
+	 */
+	private static int[] CAPTURE_DIRECTIONS = {PlayBoard.DOWN, PlayBoard.UP, PlayBoard.RIGHT, PlayBoard.LEFT};
+
+
 	/**
 	 * @param board
 	 */
@@ -179,6 +224,138 @@ public class Judge implements Cloneable
 	}
 
 
+	/**
+	 * Zabalí tah do jednoho čísla (index pole odkud << 8 | index pole kam).
+	 *
+	 * @param from	index pole, z kterého se táhne
+	 * @param to	index pole, na které se táhne
+	 * @return
+	 */
+	public static int packMove(int from, int to)
+	{
+		return (from << 8) | to;
+	}
+
+
+	/**
+	 * Vrátí index pole, z kterého zabalený tah vede.
+	 *
+	 * @param move
+	 * @return
+	 */
+	public static int getMoveFrom(int move)
+	{
+		return move >>> 8;
+	}
+
+
+	/**
+	 * Vrátí index pole, na které zabalený tah vede.
+	 *
+	 * @param move
+	 * @return
+	 */
+	public static int getMoveTo(int move)
+	{
+		return move & 0xFF;
+	}
+
+
+	/**
+	 * Převede zabalený tah na souřadnice {{odkud x, odkud y}, {kam x, kam y}}.
+	 *
+	 * @param move
+	 * @return
+	 */
+	public static int[][] unpackMove(int move)
+	{
+		int from = getMoveFrom(move), to = getMoveTo(move);
+
+		return new int[][]{
+			{from / (PlayBoard.SIZE + 1), from % (PlayBoard.SIZE + 1)},
+			{to / (PlayBoard.SIZE + 1), to % (PlayBoard.SIZE + 1)}
+		};
+	}
+
+
+	/**
+	 * Zapíše všechny možné tahy hráče (zabalené) do předaného pole.
+	 *
+	 * Nealokuje žádnou paměť. Pořadí tahů odpovídá getPossibleMoves - u švédů
+	 * nejprve král, dále kameny po řádcích a u každého kamene směry dolů,
+	 * doprava, nahoru a doleva.
+	 *
+	 * @param playerOnMove
+	 * @param moves			pole pro tahy (alespoň MAX_MOVES_COUNT prvků)
+	 * @return počet zapsaných tahů
+	 */
+	public int generateMoves(int playerOnMove, int[] moves)
+	{
+		int count = 0, squaresCount, i;
+
+		// U švédů nejprve král.
+		if (this.isSweden(playerOnMove))
+		{
+			squaresCount = board.getValueSquares(TablutSquare.KING, squaresBuffer);
+
+			for (i = 0; i < squaresCount; i++)
+			{
+				count = generateSquareMoves(squaresBuffer[i], true, moves, count);
+			}
+		}
+
+		squaresCount = board.getValueSquares(playerOnMove, squaresBuffer);
+
+		for (i = 0; i < squaresCount; i++)
+		{
+			count = generateSquareMoves(squaresBuffer[i], false, moves, count);
+		}
+
+		return count;
+	}
+
+
+	/**
+	 * Zapíše všechny možné tahy kamene na daném poli.
+	 *
+	 * @param square	index pole kamene
+	 * @param king		příznak krále (smí na chráněná pole)
+	 * @param moves
+	 * @param count		počet již zapsaných tahů
+	 * @return nový počet zapsaných tahů
+	 */
+	private int generateSquareMoves(int square, boolean king, int[] moves, int count)
+	{
+		int[] ray;
+
+		// Směry dolů, doprava, nahoru a doleva.
+		for (int direction = 0; direction < 4; direction++)
+		{
+			ray = PlayBoard.RAYS[square][direction];
+
+			for (int i = 0; i < ray.length && this.isFreeField(ray[i], king); i++)
+			{
+				moves[count++] = packMove(square, ray[i]);
+			}
+		}
+
+		return count;
+	}
+
+
+	/**
+	 * Zjistí, zda-li může kámen vstoupit na pole (je prázdné a není "protected", pokud nejde o krále).
+	 *
+	 * @param square	index pole
+	 * @param king
+	 * @return
+	 */
+	private boolean isFreeField(int square, boolean king)
+	{
+		return board.isSquareBlank(square) && (king || !PlayBoard.isProtectedSquare(square));
+	}
+
+
 	/**
 	 * Kontroluje, zda-li je tah validní.
 	 *
@@ -284,132 +461,142 @@ public class Judge implements Cloneable
 	/**
 	 * Zjistí, jestli je políčko chráněné a neobsazené králem.
 	 *
-	 * @param coord
+	 * @param square	index pole
 	 * @return
 	 */
-	private boolean isProtectedCapturingField(int [] coord)
+	private boolean isProtectedCapturingField(int square)
 	{
-		return board.isProtectedField(coord) && !isKing(board.getCoordsValue(coord[0], coord[1]));
+		return PlayBoard.isProtectedSquare(square) && !isKing(board.getSquareValue(square));
 	}
 
 
 	/**
-	 * Zjistí, jestli je kámen obklíčen - pomocná (horizontálně).
+	 * Zjistí, jestli pole (nebo okraj desky) pomáhá hráči na tahu při zajímání.
 	 *
-	 * @param next
-	 * @param y
+	 * @param square		index pole (nebo -1 mimo desku)
 	 * @param playerOnMove
 	 * @return
 	 */
-	private boolean isCapturedWithManyHorizontal(int next, int y, int playerOnMove)
+	private boolean isCapturingField(int square, int playerOnMove)
 	{
-		return
-				(y - 1 < 0 || this.isMe(playerOnMove, board.getCoordsValue(next, y - 1)) || isProtectedCapturingField(new int[]{next, y - 1})) &&
-				(y + 1 > PlayBoard.SIZE || this.isMe(playerOnMove, board.getCoordsValue(next, y + 1)) || isProtectedCapturingField(new int[]{next, y + 1}))
-		;
+		return square < 0 || this.isMe(playerOnMove, board.getSquareValue(square)) || isProtectedCapturingField(square);
 	}
 
 
 	/**
-	 * Zjistí, jestli je kámen obklíčen - pomocná (vertikálně).
+	 * Zjistí, jestli je kámen obklíčen - pomocná (kolmo ke směru zajímání).
 	 *
-	 * @param x
-	 * @param next
+	 * @param next			index pole zajímaného kamene
+	 * @param direction		směr zajímání
 	 * @param playerOnMove
 	 * @return
 	 */
-	private boolean isCapturedWithManyVertical(int x, int next, int playerOnMove)
+	private boolean isCapturedWithMany(int next, int direction, int playerOnMove)
 	{
+		int[] neighbours = PlayBoard.NEIGHBOURS[next];
+
 		return
-				(x - 1 < 0 || this.isMe(playerOnMove, board.getCoordsValue(x - 1, next)) || isProtectedCapturingField(new int[]{x - 1, next})) &&
-				(x + 1 > PlayBoard.SIZE || this.isMe(playerOnMove, board.getCoordsValue(x + 1, next)) || isProtectedCapturingField(new int[]{x + 1, next}))
+				isCapturingField(neighbours[(direction + 1) & 3], playerOnMove) &&
+				isCapturingField(neighbours[(direction + 3) & 3], playerOnMove)
 		;
 	}
 
 
 	/**
-	 * Zjistí, jestli je kámen obklíčen (vertikálně).
+	 * Zjistí, jestli je sousední kámen v daném směru obklíčen.
 	 *
-	 * @param x
-	 * @param y
-	 * @param direction
+	 * @param square		index pole tahu
+	 * @param direction		směr (PlayBoard.DOWN, RIGHT, UP, LEFT)
 	 * @param playerOnMove
-	 * @return
+	 * @return index zajatého pole, nebo -1
 	 */
-	private boolean isCaptiveVertical(int x, int y, int direction, int playerOnMove)
+	private int findCaptive(int square, int direction, int playerOnMove)
 	{
-		int next		= x + (direction * 1);
-		int afterNext	= x + (direction * 2);
+		int next = PlayBoard.NEIGHBOURS[square][direction];
 
-		if (next >= 0 && next <= PlayBoard.SIZE && !isProtectedCapturingField(new int[]{next, y}))
+		if (next >= 0 && !isProtectedCapturingField(next))
 		{
-			int suspiciousValue = board.getCoordsValue(next, y);
+			int suspiciousValue = board.getSquareValue(next);
 
 			if (this.isEnemy(playerOnMove, suspiciousValue))
 			{
-				if (afterNext >= 0 && afterNext <= PlayBoard.SIZE)
+				int afterNext = PlayBoard.NEIGHBOURS[next][direction];
+
+				if (afterNext >= 0)
 				{
-					if (this.isMe(playerOnMove, board.getCoordsValue(afterNext, y)) || isProtectedCapturingField(new int[]{afterNext, y}))
+					if (this.isMe(playerOnMove, board.getSquareValue(afterNext)) || isProtectedCapturingField(afterNext))
 					{
-						if (this.isKing(suspiciousValue))
-						{
-							return isCapturedWithManyHorizontal(next, y, playerOnMove);
-						}
-						else
+						if (!this.isKing(suspiciousValue) || isCapturedWithMany(next, direction, playerOnMove))
 						{
-							return true;
+							return next;
 						}
 					}
 				}
-				else
+				else if (isCapturedWithMany(next, direction, playerOnMove))
 				{
-					return isCapturedWithManyHorizontal(next, y, playerOnMove);
+					return next;
 				}
 			}
 		}
 
-		return false;
+		return -1;
+	}
+
+
+	/**
+	 * Vyhledá zajímané kameny a zapíše jejich souřadnice do pomocného pole.
+	 *
+	 * @param x				souřadnice tahu
+	 * @param y				souřadnice tahu
+	 * @param playerOnMove	hodnota hráče na tahu
+	 * @return počet zajatců
+	 */
+	private int findCaptives(int x, int y, int playerOnMove)
+	{
+		int count = 0, square = PlayBoard.getSquareIndex(x, y), captive;
+
+		// Pokračujeme pouze pokud hranou figurkou není král - ten se neúčastní zajímání.
+		if (!this.isKing(board.getSquareValue(square)))
+		{
+			// Směry dolů, nahoru, doprava a doleva.
+			for (int direction : CAPTURE_DIRECTIONS)
+			{
+				captive = findCaptive(square, direction, playerOnMove);
+
+				if (captive >= 0)
+				{
+					captivesBuffer[count++] = captive / (PlayBoard.SIZE + 1);
+					captivesBuffer[count++] = captive % (PlayBoard.SIZE + 1);
+				}
+			}
+		}
+
+		return count / 2;
 	}
 
 
 	/**
-	 * Zjistí, jestli je kámen obklíčen (horizontálně).
+	 * Zjistí, zda-li (zabalený) tah zajme alespoň jeden kámen (bez zahrání tahu).
 	 *
-	 * @param x
-	 * @param y
-	 * @param direction
+	 * @param move
 	 * @param playerOnMove
 	 * @return
 	 */
-	private boolean isCaptiveHorizontal(int x, int y, int direction, int playerOnMove)
+	public boolean isCapturingMove(int move, int playerOnMove)
 	{
-		int next		= y + (direction * 1);
-		int afterNext	= y + (direction * 2);
+		int to = getMoveTo(move);
 
-		if (next >= 0 && next <= PlayBoard.SIZE && !isProtectedCapturingField(new int[]{x, next}))
+		// Král se zajímání neúčastní.
+		if (this.isKing(board.getSquareValue(getMoveFrom(move))))
 		{
-			int suspiciousValue = board.getCoordsValue(x, next);
+			return false;
+		}
 
-			if (this.isEnemy(playerOnMove, suspiciousValue))
+		for (int direction : CAPTURE_DIRECTIONS)
+		{
+			if (findCaptive(to, direction, playerOnMove) >= 0)
 			{
-				if (afterNext >= 0 && afterNext <= PlayBoard.SIZE)
-				{
-					if (this.isMe(playerOnMove, board.getCoordsValue(x, afterNext)) || isProtectedCapturingField(new int[]{x, afterNext}))
-					{
-						if (this.isKing(suspiciousValue))
-						{
-							return isCapturedWithManyVertical(x, next, playerOnMove);
-						}
-						else
-						{
-							return true;
-						}
-					}
-				}
-				else
-				{
-					return isCapturedWithManyVertical(x, next, playerOnMove);
-				}
+				return true;
 			}
 		}
 
@@ -417,6 +604,21 @@ public class Judge implements Cloneable
 	}
 
 
+	/**
+	 * Zjistí, zda-li (zabalený) tah přesune krále do rohu (únik krále).
+	 *
+	 * @param move
+	 * @return
+	 */
+	public boolean isKingEscapeMove(int move)
+	{
+		return
+				this.isKing(board.getSquareValue(getMoveFrom(move))) &&
+				(PlayBoard.SQUARE_FLAGS[getMoveTo(move)] & PlayBoard.FLAG_CORNER) != 0
+		;
+	}
+
+
 	/**
 	 * Načte souřadnice všech zajímaných kamenů.
 	 *
@@ -426,35 +628,12 @@ public class Judge implements Cloneable
 	 */
 	public List<int[]> getCaptivesCoords(int[] moveTo, int playerOnMove)
 	{
-		int x = moveTo[0], y = moveTo[1];
 		List<int[]> captives = new ArrayList<>();
+		int count = findCaptives(moveTo[0], moveTo[1], playerOnMove);
 
-		// Pokračujeme pouze pokud hranou figurkou není král - ten se neúčastní zajímání.
-		if (!this.isKing(board.getCoordsValue(x, y)))
+		for (int i = 0; i < count; i++)
 		{
-			// Směr nahoru.
-			if (isCaptiveVertical(x, y, 1, playerOnMove))
-			{
-				captives.add(new int[]{x + 1, y});
-			}
-
-			// Směr dolů.
-			if (isCaptiveVertical(x, y, -1, playerOnMove))
-			{
-				captives.add(new int[]{x - 1, y});
-			}
-
-			// Směr doprava.
-			if (isCaptiveHorizontal(x, y, 1, playerOnMove))
-			{
-				captives.add(new int[]{x, y + 1});
-			}
-
-			// Směr doleva.
-			if (isCaptiveHorizontal(x, y, -1, playerOnMove))
-			{
-				captives.add(new int[]{x, y - 1});
-			}
+			captives.add(new int[]{captivesBuffer[i * 2], captivesBuffer[i * 2 + 1]});
 		}
 
 		return captives;
@@ -481,16 +660,25 @@ public class Judge implements Cloneable
 	public boolean isKingSurrounded()
 	{
 		// Načte pozici krále.
-		int[] position = board.getKingsPosition();
+		int position = board.getKingsSquare(), neighbour;
+
+		if (position < 0)
+		{
+			return false;
+		}
 
 		// Zkontroluje ortogonální pozice kolem krále.
-		return
-				position != null &&
-				(position[0] - 1 < 0 || this.isRussian(board.getCoordsValue(position[0] - 1, position[1])) || board.isProtectedField(new int[]{position[0] - 1, position[1]})) &&
-				(position[0] + 1 > PlayBoard.SIZE || this.isRussian(board.getCoordsValue(position[0] + 1, position[1])) || board.isProtectedField(new int[]{position[0] + 1, position[1]})) &&
-				(position[1] - 1 < 0 || this.isRussian(board.getCoordsValue(position[0], position[1] - 1)) || board.isProtectedField(new int[]{position[0], position[1] - 1})) &&
-				(position[1] + 1 > PlayBoard.SIZE || this.isRussian(board.getCoordsValue(position[0], position[1] + 1)) || board.isProtectedField(new int[]{position[0], position[1] + 1}))
-		;
+		for (int direction = 0; direction < 4; direction++)
+		{
+			neighbour = PlayBoard.NEIGHBOURS[position][direction];
+
+			if (neighbour >= 0 && !this.isRussian(board.getSquareValue(neighbour)) && !PlayBoard.isProtectedSquare(neighbour))
+			{
+				return false;
+			}
+		}
+
+		return true;
 	}
 
 
@@ -501,16 +689,10 @@ public class Judge implements Cloneable
 	 */
 	public boolean isKingSave()
 	{
-		for (int[] pField : this.board.PROTECTED_FIELDS)
-		{
-			// Pokud se nejedná o králův palác (pole uprostřed hrací desky) a král na něm stojí, hra končí.
-			if (!board.isKingsPalaceField(pField) && this.isKing(board.getCoordsValue(pField[0], pField[1])))
-			{
-				return true;
-			}
-		}
+		int position = board.getKingsSquare();
 
-		return false;
+		// Pokud král stojí v rohu (ne v králově paláci), hra končí.
+		return position >= 0 && (PlayBoard.SQUARE_FLAGS[position] & PlayBoard.FLAG_CORNER) != 0;
 	}
 
 
@@ -553,29 +735,155 @@ public class Judge implements Cloneable
 	/**
 	 * Zahraje tah.
 	 *
+	 * Tah se zaznamená do zásobníku, aby jej bylo možné vrátit metodou undoMove.
+	 *
 	 * @param from
 	 * @param to
 	 * @param playerOnMove
 	 */
 	public void playMove(int[] from, int[] to, int playerOnMove)
 	{
+		playMove(from[0], from[1], to[0], to[1], playerOnMove);
+	}
+
+
+	/**
+	 * Zahraje zabalený tah (viz packMove).
+	 *
+	 * @param move
+	 * @param playerOnMove
+	 */
+	public void playMove(int move, int playerOnMove)
+	{
+		int from = getMoveFrom(move), to = getMoveTo(move);
+
+		playMove(from / (PlayBoard.SIZE + 1), from % (PlayBoard.SIZE + 1), to / (PlayBoard.SIZE + 1), to % (PlayBoard.SIZE + 1), playerOnMove);
+	}
+
+
+	/**
+	 * Zahraje tah partie, který se již nevrací.
+	 *
+	 * Na rozdíl od playMove se tah nezaznamená do zásobníku tahů zpět, takže zásobník
+	 * během partie neroste (tahy partie se vracejí historií manažera).
+	 *
+	 * @param from
+	 * @param to
+	 * @param playerOnMove
+	 */
+	public void playGameMove(int[] from, int[] to, int playerOnMove)
+	{
+		playMove(from[0], from[1], to[0], to[1], playerOnMove);
+
+		undoTop -= UNDO_FRAME_SIZE;
+	}
+
+
+	/**
+	 * Zahraje zabalený tah partie, který se již nevrací (viz playGameMove).
+	 *
+	 * @param move
+	 * @param playerOnMove
+	 */
+	public void playGameMove(int move, int playerOnMove)
+	{
+		playMove(move, playerOnMove);
+
+		undoTop -= UNDO_FRAME_SIZE;
+	}
+
+
+	/**
+	 * Zahraje tah.
+	 *
+	 * @param fromX
+	 * @param fromY
+	 * @param toX
+	 * @param toY
+	 * @param playerOnMove
+	 */
+	private void playMove(int fromX, int fromY, int toX, int toY, int playerOnMove)
+	{
+		// Zajistíme místo v zásobníku tahů zpět.
+		if (undoTop + UNDO_FRAME_SIZE > undoStack.length)
+		{
+			undoStack = Arrays.copyOf(undoStack, undoStack.length * 2);
+		}
+
+		int frame = undoTop;
+		int i, x, y;
+
+		undoStack[frame]		= fromX;
+		undoStack[frame + 1]	= fromY;
+		undoStack[frame + 2]	= toX;
+		undoStack[frame + 3]	= toY;
+		undoStack[frame + 4]	= blindMovesCount;
+
 		// Provede tah na desce.
-		board.makeMove(from, to);
+		board.makeMove(fromX, fromY, toX, toY);
 
 		// Načte pozice zajatých kamenů.
-		List<int[]> captives = this.getCaptivesCoords(to, playerOnMove);
+		int captivesCount = findCaptives(toX, toY, playerOnMove);
+
+		undoStack[frame + 5] = captivesCount;
 
 		// Pokud jsou nalezeny kameny pro zajetí, vymažeme z desky a vynulujeme počet tahů, bez odebrání kamene.
-		if (!captives.isEmpty())
+		if (captivesCount > 0)
 		{
 			this.blindMovesCount = 0;
-			board.removeCaptives(captives);
+
+			for (i = 0; i < captivesCount; i++)
+			{
+				x = captivesBuffer[i * 2];
+				y = captivesBuffer[i * 2 + 1];
+
+				undoStack[frame + 6 + i * 3]		= x;
+				undoStack[frame + 6 + i * 3 + 1]	= y;
+				undoStack[frame + 6 + i * 3 + 2]	= board.getCoordsValue(x, y);
+
+				board.setCoordsValue(x, y, 0);
+			}
 		}
 		// Pokud se kameny nezajímají, inkrementujeme počet tahů, bez odebrání kamene.
 		else
 		{
 			this.blindMovesCount++;
 		}
+
+		undoTop += UNDO_FRAME_SIZE;
+	}
+
+
+	/**
+	 * Vrátí poslední tah zahraný metodou playMove.
+	 *
+	 * Vrátí na desku zajaté kameny, táhnoucí kámen a počet tahů bez zajmutí.
+	 *
+	 * @throws JudgeException pokud není žádný tah k vrácení.
+	 */
+	public void undoMove() throws JudgeException
+	{
+		if (undoTop == 0)
+		{
+			throw new JudgeException("There is no move to undo.");
+		}
+
+		undoTop -= UNDO_FRAME_SIZE;
+
+		int frame = undoTop;
+		int captivesCount = undoStack[frame + 5];
+
+		// Vrátíme zajaté kameny.
+		for (int i = 0; i < captivesCount; i++)
+		{
+			board.setCoordsValue(undoStack[frame + 6 + i * 3], undoStack[frame + 6 + i * 3 + 1], undoStack[frame + 6 + i * 3 + 2]);
+		}
+
+		// Vrátíme táhnoucí kámen.
+		board.setCoordsValue(undoStack[frame], undoStack[frame + 1], board.getCoordsValue(undoStack[frame + 2], undoStack[frame + 3]));
+		board.setCoordsValue(undoStack[frame + 2], undoStack[frame + 3], 0);
+
+		this.blindMovesCount = undoStack[frame + 4];
 	}
 
 
@@ -632,12 +940,17 @@ public class Judge implements Cloneable
 	/**
 	 * Při kopii celého objektu je třeba vytvořit kopii hrací desky.
 	 *
+	 * Kopie přebírá i počet tahů bez zajmutí (prohledávání na kopii podle něj
+	 * posuzuje výsledky tablebáze koncovek).
+	 *
 	 * @return
 	 */
 	@Override
 	public Object clone()
 	{
-		Cloneable duplicate = new Judge((PlayBoard) board.clone());
+		Judge duplicate = new Judge((PlayBoard) board.clone());
+		duplicate.blindMovesCount = blindMovesCount;
+
 		return duplicate;
 	}
 
@@ -2,18 +2,22 @@ package tablut;
 
 import tablut.listeners.ChangeGUIListener;
 import tablut.events.ChangeGUIEvent;
+import tablut.events.GameMessageEvent;
 import tablut.exceptions.PlayerException;
 import tablut.exceptions.ManagerException;
 import tablut.exceptions.JudgeException;
 import tablut.exceptions.HistoryException;
-import java.awt.event.ActionListener;
-import java.awt.event.ActionEvent;
 import java.util.ArrayList;
 import java.util.List;
-import javax.swing.JOptionPane;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import tablut.listeners.GameMessageListener;
 import tablut.listeners.HistoryListListener;
 import tablut.listeners.MarkSquareListener;
 import tablut.listeners.PcIsThinkingListener;
+import tablut.listeners.SearchProgressListener;
 
 /**
  * Manažer.
@@ -21,9 +25,13 @@ import tablut.listeners.PcIsThinkingListener;
  * Dispečer veškeré herní logiky.
  * Obsahuje instance všech částí (ne GUI) a řídí jejich komunikaci.
  *
+ * Nezávisí na Swingu - tahy a ovládání přijímá metodami (selectSquare, submitMove,
+ * undoMove, redoMove, changePausePlay) a GUI informuje událostmi. Napojení na Swing
+ * obstarává tablut.gui.GUIGameAdapter, takže lze hru provozovat i bez GUI.
+ *
  * @author Ondřej Tom
  */
-public class Manager implements ActionListener, HistoryListListener
+public class Manager implements HistoryListListener
 {
 	/**
 	 * Minimální zdržení PC hráče (milisekundy).
@@ -31,6 +39,18 @@ public class Manager implements ActionListener, HistoryListListener
 	private static int PC_PLAYER_DELAY = 500;
 
 
+	/**
+	 * Výsledek kroku hrací smyčky - pokračovat hned dalším krokem.
+	 */
+	static long STEP_CONTINUE = -1;
+
+
+	/**
+	 * Výsledek kroku hrací smyčky - čekat na změnu stavu hry (bez časového omezení).
+	 */
+	static long STEP_WAIT = 0;
+
+
 	/**
 	 * Hrací deska.
 	 */
@@ -38,9 +58,9 @@ public class Manager implements ActionListener, HistoryListListener
 
 
 	/**
-	 * Rozhodčí.
+	 * Rozhodčí (při tahu zpět, skoku v historii a načtení hry se nahrazuje z jiného vlákna).
 	 */
-	private Judge judge;
+	private volatile Judge judge;
 
 
 	/**
@@ -97,10 +117,16 @@ public class Manager implements ActionListener, HistoryListListener
 	List<MarkSquareListener> markSquareListeners = new ArrayList<>();
 
 
+	/**
+	 * Pole posluchačů zpráv pro hráče.
+	 */
+	List<GameMessageListener> gameMessageListeners = new ArrayList<>();
+
+
 	/**
 	 * Příznak pozastavené hry.
 	 */
-	private boolean gamePaused = false;
+	private volatile boolean gamePaused = false;
 
 
 	/**
@@ -112,7 +138,43 @@ public class Manager implements ActionListener, HistoryListListener
 	/**
 	 * Příznak pro úplné zastavení manažera.
 	 */
-	private boolean isStopped = false;
+	private volatile boolean isStopped = false;
+
+
+	/**
+	 * Zámek, na kterém hrací smyčka čeká na změnu stavu hry.
+	 */
+	private final Object loopLock = new Object();
+
+
+	/**
+	 * Příznak změny stavu hry od posledního probuzení hrací smyčky.
+	 */
+	private boolean loopSignalled = false;
+
+
+	/**
+	 * Plánovač her, ve kterém hra běží (null = hra má vlastní vlákno).
+	 */
+	private volatile GameScheduler scheduler;
+
+
+	/**
+	 * Hledání tahu počítače ve výpočetním poolu plánovače (nebo null).
+	 */
+	private Future<int[][]> computerSearch;
+
+
+	/**
+	 * Rozhodčí pozice, ve které hledání tahu počítače začalo.
+	 */
+	private volatile Judge computerSearchJudge;
+
+
+	/**
+	 * Čas začátku zpracování tahu PC hráče.
+	 */
+	private long pcPlayerStartTime = 0;
 
 
 	private boolean endAnnounced = false;
@@ -162,6 +224,137 @@ public class Manager implements ActionListener, HistoryListListener
 	public void stop()
 	{
 		this.isStopped = true;
+
+		stopPondering();
+		cancelSearch();
+		signalGameLoop();
+	}
+
+
+	/**
+	 * Zjistí, zda-li byl manažer zastaven.
+	 *
+	 * @return
+	 */
+	public boolean isStopped()
+	{
+		return isStopped;
+	}
+
+
+	/**
+	 * Nastaví plánovač her, ve kterém hra běží.
+	 *
+	 * @param scheduler
+	 */
+	void setGameScheduler(GameScheduler scheduler)
+	{
+		this.scheduler = scheduler;
+	}
+
+
+	/**
+	 * Probudí hrací smyčku - změnil se stav hry (tah člověka, pauza, historie, zastavení,
+	 * dokončené hledání tahu počítače).
+	 */
+	void signalGameLoop()
+	{
+		synchronized (loopLock)
+		{
+			loopSignalled = true;
+			loopLock.notifyAll();
+		}
+
+		GameScheduler currentScheduler = scheduler;
+
+		if (currentScheduler != null)
+		{
+			currentScheduler.wake(this);
+		}
+	}
+
+
+	/**
+	 * Převezme příznak změny stavu hry (plánovač her před krokem hrací smyčky).
+	 *
+	 * @return
+	 */
+	boolean takeGameLoopSignal()
+	{
+		synchronized (loopLock)
+		{
+			boolean signalled = loopSignalled;
+			loopSignalled = false;
+
+			return signalled;
+		}
+	}
+
+
+	/**
+	 * Zjistí, zda-li se od posledního kroku hrací smyčky změnil stav hry.
+	 *
+	 * @return
+	 */
+	boolean isGameLoopSignalled()
+	{
+		synchronized (loopLock)
+		{
+			return loopSignalled;
+		}
+	}
+
+
+	/**
+	 * Uspí hrací smyčku, dokud se nezmění stav hry.
+	 *
+	 * Změna, která nastala od posledního probuzení, smyčku neuspí - nepřijde se tak
+	 * o signál mezi kontrolou stavu a usnutím.
+	 *
+	 * @param timeout	maximální doba čekání (ms, 0 = bez omezení)
+	 * @throws InterruptedException
+	 */
+	private void waitForGameLoopSignal(long timeout) throws InterruptedException
+	{
+		synchronized (loopLock)
+		{
+			if (!loopSignalled && !isStopped)
+			{
+				loopLock.wait(timeout);
+			}
+
+			loopSignalled = false;
+		}
+	}
+
+
+	/**
+	 * Zruší probíhající hledání nejlepšího tahu počítačových hráčů.
+	 */
+	private void cancelSearch()
+	{
+		for (Player player : new Player[]{playerA, playerB})
+		{
+			if (player instanceof ComputerPlayer)
+			{
+				((ComputerPlayer) player).cancelSearch();
+			}
+		}
+	}
+
+
+	/**
+	 * Zastaví přemýšlení počítačových hráčů během tahu soupeře.
+	 */
+	private void stopPondering()
+	{
+		for (Player player : new Player[]{playerA, playerB})
+		{
+			if (player instanceof ComputerPlayer)
+			{
+				((ComputerPlayer) player).stopPondering();
+			}
+		}
 	}
 
 
@@ -176,6 +369,17 @@ public class Manager implements ActionListener, HistoryListListener
 	}
 
 
+	/**
+	 * Přidá posluchače průběhu hledání nejlepšího tahu.
+	 *
+	 * @param listener
+	 */
+	public void addSearchProgressListener(SearchProgressListener listener)
+	{
+		ComputerPlayer.addSearchProgressListener(listener);
+	}
+
+
 	/**
 	 * Vrátí počet zahraných tahů, bez zajmutí.
 	 *
@@ -250,6 +454,7 @@ public class Manager implements ActionListener, HistoryListListener
 	public void setPlayerA(Player player)
 	{
 		playerA = player;
+		signalGameLoop();
 	}
 
 
@@ -272,6 +477,7 @@ public class Manager implements ActionListener, HistoryListListener
 	public void setPlayerB(Player player)
 	{
 		playerB = player;
+		signalGameLoop();
 	}
 
 
@@ -333,28 +539,6 @@ public class Manager implements ActionListener, HistoryListListener
 	}
 
 
-	/**
-	 * Vrací obtížnost hráče na tahu.
-	 *
-	 * @return
-	 * @throws ManagerException pokud se nejedná o lidského hráče.
-	 */
-	private int getPlayerDifficulty() throws ManagerException
-	{
-		Player player = this.getPlayer();
-
-		if (player instanceof ComputerPlayer)
-		{
-			ComputerPlayer computer = (ComputerPlayer) player;
-			return computer.getDifficulty();
-		}
-		else
-		{
-			throw new ManagerException("Cant't take difficulty of human player.");
-		}
-	}
-
-
 	/**
 	 * Přepne hráče na tahu.
 	 */
@@ -386,6 +570,31 @@ public class Manager implements ActionListener, HistoryListListener
 	}
 
 
+	/**
+	 * Přidá posluchače zpráv pro hráče.
+	 *
+	 * @param l
+	 */
+	public void addGameMessageListener(GameMessageListener l)
+	{
+		gameMessageListeners.add(l);
+	}
+
+
+	/**
+	 * Obvolá posluchače zprávou pro hráče.
+	 *
+	 * @param message
+	 */
+	private void fireGameMessage(String message)
+	{
+		for (GameMessageListener l : gameMessageListeners)
+		{
+			l.gameMessage(new GameMessageEvent(this, message));
+		}
+	}
+
+
 	/**
 	 * Aktualizuje GUI.
 	 *
@@ -598,7 +807,7 @@ public class Manager implements ActionListener, HistoryListListener
 	private void playMove()
 	{
 		history.addUndo(new HistoryItem(playerOnMove, (PlayBoard) board.clone(), moveFrom, moveTo, getBlindMovesCount()));
-		judge.playMove(moveFrom, moveTo, playerOnMove);
+		judge.playGameMove(moveFrom, moveTo, playerOnMove);
 		this.clearMoves();
 	}
 
@@ -612,6 +821,9 @@ public class Manager implements ActionListener, HistoryListListener
 	 */
 	private void doHistoryAction(HistoryItem hItem, String type) throws HistoryException
 	{
+		// Pozice se mění - přemýšlení nad očekávaným tahem ztrácí smysl.
+		stopPondering();
+
 		// Získá hráče na tahu.
 		playerOnMove = hItem.getPlayerOnMove();
 
@@ -625,7 +837,7 @@ public class Manager implements ActionListener, HistoryListListener
 		if (type.equals("redo"))
 		{
 			// Zahrajeme tah.
-			judge.playMove(hItem.getMoveFrom(), hItem.getMoveTo(), hItem.getPlayerOnMove());
+			judge.playGameMove(hItem.getMoveFrom(), hItem.getMoveTo(), hItem.getPlayerOnMove());
 
 			// Změníme hráče na tahu.
 			this.changePlayerOnMove();
@@ -640,6 +852,8 @@ public class Manager implements ActionListener, HistoryListListener
 		// Nastavíme GUI.
 		this.clearMoves();
 		this.changeGUI();
+
+		signalGameLoop();
 	}
 
 
@@ -704,55 +918,62 @@ public class Manager implements ActionListener, HistoryListListener
 
 
 	/**
-	 * Byla vykonána akce - kliknutí na tlačítko.
+	 * Vybere pole hrací desky (kliknutí člověka na tahu) - nejprve kámen, poté cílové pole.
 	 *
-	 * @param evt
+	 * @param x
+	 * @param y
 	 */
-	@Override
-	public void actionPerformed(ActionEvent evt)
+	public void selectSquare(int x, int y)
 	{
-		// Kliknutí na hrací pole.
-		if (isPlayerOnMoveHuman() && evt.getSource() instanceof TablutSquare && !this.isGameOver())
+		if (isPlayerOnMoveHuman() && !this.isGameOver())
 		{
-			TablutSquare square = (TablutSquare) evt.getSource();
-			this.addMove(square.getXCoord(), square.getYCoord());
+			this.addMove(x, y);
 		}
 
-		// Kliknutí na undo button.
-		if (evt.getSource() instanceof UndoButton)
-		{
-			try
-			{
-				pauseGame();
-				undo();
-			}
-			catch (HistoryException e)
-			{
-				JOptionPane.showMessageDialog(null, e.getMessage());
-			}
-		}
+		// Hrací smyčka zkontroluje, zda-li je tah zadán.
+		signalGameLoop();
+	}
 
-		// Kliknutí na redo button.
-		if (evt.getSource() instanceof RedoButton)
-		{
-			try
-			{
-				pauseGame();
-				redo();
-			}
-			catch (HistoryException e)
-			{
-				JOptionPane.showMessageDialog(null, e.getMessage());
-			}
-		}
 
-		// Kliknutí na pozastavení/spuštění PC hry
-		if (evt.getSource() instanceof PcPlayPauseButton)
+	/**
+	 * Zadá celý tah člověka na tahu (platnost tahu ověří hrací smyčka).
+	 *
+	 * @param from
+	 * @param to
+	 */
+	public void submitMove(int[] from, int[] to)
+	{
+		if (isPlayerOnMoveHuman() && !this.isGameOver())
 		{
-			clearMoves();
-			changePausePlay();
-			this.changeGUI();
+			moveFrom	= from;
+			moveTo		= to;
 		}
+
+		signalGameLoop();
+	}
+
+
+	/**
+	 * Vrátí tah zpět (a pozastaví hru počítače).
+	 *
+	 * @throws HistoryException
+	 */
+	public void undoMove() throws HistoryException
+	{
+		pauseGame();
+		undo();
+	}
+
+
+	/**
+	 * Zopakuje vrácený tah (a pozastaví hru počítače).
+	 *
+	 * @throws HistoryException
+	 */
+	public void redoMove() throws HistoryException
+	{
+		pauseGame();
+		redo();
 	}
 
 
@@ -763,11 +984,11 @@ public class Manager implements ActionListener, HistoryListListener
 	{
 		if (winner == TablutSquare.RUSSIAN)
 		{
-			JOptionPane.showMessageDialog(null, "Russians win!");
+			fireGameMessage("Russians win!");
 		}
 		else if (winner == TablutSquare.SWEDEN)
 		{
-			JOptionPane.showMessageDialog(null, "Swedes win!");
+			fireGameMessage("Swedes win!");
 		}
 	}
 
@@ -790,6 +1011,10 @@ public class Manager implements ActionListener, HistoryListListener
 	private void pauseGame()
 	{
 		gamePaused = true;
+
+		// Rozběhnuté hledání tahu nemá smysl dokončovat.
+		cancelSearch();
+		signalGameLoop();
 	}
 
 
@@ -799,6 +1024,7 @@ public class Manager implements ActionListener, HistoryListListener
 	private void resumeGame()
 	{
 		gamePaused = false;
+		signalGameLoop();
 	}
 
 
@@ -814,11 +1040,22 @@ public class Manager implements ActionListener, HistoryListListener
 
 
 	/**
-	 * Pozastaví/spustí hru.
+	 * Pozastaví/spustí hru počítače.
 	 */
-	private void changePausePlay()
+	public void changePausePlay()
 	{
-		gamePaused = !gamePaused;
+		clearMoves();
+
+		if (gamePaused)
+		{
+			resumeGame();
+		}
+		else
+		{
+			pauseGame();
+		}
+
+		this.changeGUI();
 	}
 
 
@@ -873,181 +1110,320 @@ public class Manager implements ActionListener, HistoryListListener
 		return false;
 	}
 
-
 	/**
-	 * Odstartuje hrací smyčku.
+	 * Odstartuje hrací smyčku (v aktuálním vlákně, až do zastavení manažera).
 	 *
 	 * @throws InterruptedException
 	 * @throws ManagerException
 	 */
 	public void startGameLoop() throws InterruptedException, ManagerException
 	{
-		// Smyčka běží, dokud není definován vítěz, nebylo dosaženo maximálního počtu tahů nebo nedošlo k přerušení.
+		// Smyčka běží, dokud nedošlo k přerušení.
 		while (!isStopped)
 		{
-			if (!isGameOver())
+			long wait = runGameStep();
+
+			if (wait != STEP_CONTINUE)
 			{
-				// Pokud je hráčem na tahu člověk a nebyl nastaven tah, tak aplikace čeká.
-				if ((this.isPlayerOnMoveHuman() && !this.isMoveSet()) || (this.isPlayerOnMoveComputer() && this.isGamePaused()))
-				{
-					Thread.sleep(50);
-					continue;
-				}
+				waitForGameLoopSignal(wait);
+			}
+		}
+	}
+
+
+	/**
+	 * Provede jeden krok hrací smyčky.
+	 *
+	 * Krok nikdy nečeká na člověka ani na pozastavenou hru - vrátí, jak dlouho se má čekat
+	 * na změnu stavu hry. Hrací smyčku tak může provádět vlastní vlákno (startGameLoop)
+	 * i sdílený pool plánovače her (GameScheduler). V plánovači se hledání tahu počítače
+	 * spouští ve výpočetním poolu a krok na jeho výsledek čeká stejně jako na tah člověka.
+	 *
+	 * @return STEP_CONTINUE, STEP_WAIT, nebo maximální doba čekání (ms)
+	 * @throws InterruptedException
+	 * @throws ManagerException
+	 */
+	long runGameStep() throws InterruptedException, ManagerException
+	{
+		// Hledání tahu počítače ve výpočetním poolu ještě běží.
+		if (computerSearch != null && !computerSearch.isDone())
+		{
+			return STEP_WAIT;
+		}
 
-				// Pokud je hráčem na tahu počítač a nebyl nastaven tah.
-				else if (!this.isPlayerOnMoveHuman() && !this.isMoveSet())
+		if (isGameOver())
+		{
+			if (!endAnnounced)
+			{
+				// Pokud byl dosažen max. počet tahů -> vypíšeme zprávu.
+				if (this.judge.isBlindMovesCountReached())
 				{
-					// Zaznamenáme čas začátku zpracování PC hráče.
-					long pcPlayerStartTime = System.currentTimeMillis();
+					fireGameMessage("You have reached maximum count of possible moves without taking a stone.");
 
-					// Pokud je hra pozastavena, tak aplikace čeká.
-					if (isGamePaused())
+					if (isPlayerOnMoveComputer())
 					{
-						// Spinkej.
 						ComputerPlayer.stopThinking();
-
-						Thread.sleep(50);
-						continue;
-					}
-					else
-					{
-						// Budíček.
-						ComputerPlayer.startThinking();
 					}
+				}
 
-					try
-					{
-						int[][] ignoredMove = null;
+				if (winner > 0)
+				{
+					announceWinner();
+				}
 
-						// Pokud pohyby oscilují, získáme ignorovaný tah.
-						if (isGameOscilating())
-						{
-							ignoredMovesDepth++;
+				endAnnounced = true;
+			}
 
-							HistoryItem ignoredItem = history.getUndoItems().get(
-									history.getUndoItems().size() - Judge.MOVES_OSCILATING_LIMIT
-							);
+			// Hra pokračuje až po tahu zpět nebo skoku v historii.
+			return STEP_WAIT;
+		}
 
-							ignoredMove = new int[][]{ignoredItem.getMoveFrom(), ignoredItem.getMoveTo()};
-						}
+		// Pokud je hráčem na tahu člověk a nebyl nastaven tah, tak aplikace čeká.
+		if (this.isPlayerOnMoveHuman() && !this.isMoveSet())
+		{
+			return STEP_WAIT;
+		}
 
-						// Vygeneruje nejlepší tah, podle danné obtížnosti.
-						int[][] computerMove = ComputerPlayer.getBestMove(judge, playerOnMove, getPlayerDifficulty(), ignoredMove, ignoredMovesDepth);
+		// Pokud je hra pozastavena, zapomeneme i připravený tah počítače a aplikace čeká.
+		if (this.isPlayerOnMoveComputer() && this.isGamePaused())
+		{
+			moveFrom	= null;
+			moveTo		= null;
 
-						// Nastaví tah.
-						moveFrom = computerMove[0];
-						moveTo = computerMove[1];
+			ComputerPlayer.stopThinking();
 
-						// Vypne "PC thinking" mód.
-						ComputerPlayer.stopThinking();
-					}
+			return STEP_WAIT;
+		}
 
-					// Při zachycení výjimky vypíše zprávu.
-					catch (PlayerException ex)
-					{
-						JOptionPane.showMessageDialog(null, ex.getMessage());
-						break;
-					}
+		// Pokud je hráčem na tahu počítač a nebyl nastaven tah.
+		if (!this.isPlayerOnMoveHuman() && !this.isMoveSet())
+		{
+			try
+			{
+				int[][] computerMove;
 
-					// Zamezíme hře provést příliš rychlý tah.
-					while (System.currentTimeMillis() - pcPlayerStartTime < PC_PLAYER_DELAY)
-					{
-						Thread.sleep(50);
-					}
+				// Hledání ve výpočetním poolu skončilo - výsledek platí pouze pro pozici, ve které začalo.
+				if (computerSearch != null && computerSearchJudge == judge)
+				{
+					computerMove = takeComputerSearch();
 				}
-
-				try
+				else
 				{
-					// Pokud je hra pozastavena, přeskočíme na začátek cyklu.
-					if (isPlayerOnMoveComputer() && isGamePaused())
+					computerSearch = null;
+
+					// Zaznamenáme čas začátku zpracování PC hráče.
+					pcPlayerStartTime = System.currentTimeMillis();
+
+					// Budíček.
+					ComputerPlayer.startThinking();
+
+					// Od této chvíle se hledání dá zrušit (i když ve výpočetním poolu ještě nezačalo).
+					((ComputerPlayer) getPlayer()).requestSearch();
+
+					int[][] ignoredMove = null;
+
+					// Pokud pohyby oscilují, získáme ignorovaný tah.
+					if (isGameOscilating())
 					{
-						moveFrom	= null;
-						moveTo		= null;
-						continue;
+						ignoredMovesDepth++;
+
+						HistoryItem ignoredItem = history.getUndoItems().get(
+								history.getUndoItems().size() - Judge.MOVES_OSCILATING_LIMIT
+						);
+
+						ignoredMove = new int[][]{ignoredItem.getMoveFrom(), ignoredItem.getMoveTo()};
 					}
 
-					// Zkontrolujeme, zda-li je tah validní.
-					if (judge.isMoveValid(moveFrom, moveTo))
+					// V plánovači her hledá tah výpočetní pool, krok počká na jeho dokončení.
+					if (scheduler != null)
 					{
+						startComputerSearch(ignoredMove);
 
-						// Zrahrajeme tah.
-						this.playMove();
-
-						// Pokud byl král zajat, nastavíme vítěze a vypíšeme zprávu.
-						if (judge.isKingCaptured())
-						{
-							winner = TablutSquare.RUSSIAN;
-						}
-						// Pokud byl král zachráněn, nastavíme vítěze a vypíšeme zprávu.
-						else if (judge.isKingSave())
-						{
-							winner = TablutSquare.SWEDEN;
-						}
-						else
-						{
-							// Pokud hraje člověk proti počítači, tak po vykonání tahu
-							// obnovíme hru (aby PC nebyl zbytečně pausnutý).
-							if (this.isPlayerOnMoveHuman() && this.isComputerPlayerInGame())
-							{
-								this.resumeGame();
-							}
-
-							// Vyměníme hráče na tahu.
-							this.changePlayerOnMove();
-						}
-
-						// Po zahrání tahu, je třeba aktualizovat GUI.
-						this.changeGUI();
-
+						return STEP_WAIT;
 					}
 
-					// Pokud tah není validní, smažeme druhý tah a jedeme dál.
-					else
+					Judge searchJudge = judge;
+
+					// Vygeneruje nejlepší tah, podle danné obtížnosti.
+					computerMove = ((ComputerPlayer) getPlayer()).getBestMove(searchJudge, playerOnMove, ignoredMove, ignoredMovesDepth);
+
+					// Během hledání se změnila pozice (tah zpět, skok v historii) - tah už neplatí.
+					if (judge != searchJudge)
 					{
-						moveTo = null;
+						computerMove = null;
 					}
 				}
 
-				// Při zachycení výjimky vypíše zprávu.
-				catch (JudgeException ex)
+				// Hledání bylo zrušeno dříve, než byl nalezen jakýkoliv tah.
+				if (computerMove == null)
 				{
-					// Ofuk kvůli nedeterministické chybě na nudné večery, kvůli které mě minule vyhodili :-D.
-					if (isPlayerOnMoveComputer())
+					ComputerPlayer.stopThinking();
+					clearMoves();
+
+					return STEP_CONTINUE;
+				}
+
+				// Nastaví tah.
+				moveFrom = computerMove[0];
+				moveTo = computerMove[1];
+
+				// Vypne "PC thinking" mód.
+				ComputerPlayer.stopThinking();
+			}
+
+			// Při zachycení výjimky vypíše zprávu a hru ukončí.
+			catch (PlayerException ex)
+			{
+				fireGameMessage(ex.getMessage());
+				isStopped = true;
+
+				return STEP_CONTINUE;
+			}
+		}
+
+		// Zamezíme hře provést příliš rychlý tah.
+		if (isPlayerOnMoveComputer())
+		{
+			long delay = PC_PLAYER_DELAY - (System.currentTimeMillis() - pcPlayerStartTime);
+
+			if (delay > 0)
+			{
+				return delay;
+			}
+		}
+
+		// Hra mohla být pozastavena během hledání nebo zdržení tahu počítače.
+		if (this.isPlayerOnMoveComputer() && this.isGamePaused())
+		{
+			moveFrom	= null;
+			moveTo		= null;
+
+			return STEP_WAIT;
+		}
+
+		try
+		{
+			// Zkontrolujeme, zda-li je tah validní.
+			if (judge.isMoveValid(moveFrom, moveTo))
+			{
+
+				// Zrahrajeme tah.
+				this.playMove();
+
+				// Pokud byl král zajat, nastavíme vítěze a vypíšeme zprávu.
+				if (judge.isKingCaptured())
+				{
+					winner = TablutSquare.RUSSIAN;
+				}
+				// Pokud byl král zachráněn, nastavíme vítěze a vypíšeme zprávu.
+				else if (judge.isKingSave())
+				{
+					winner = TablutSquare.SWEDEN;
+				}
+				else
+				{
+					// Pokud hraje člověk proti počítači, tak po vykonání tahu
+					// obnovíme hru (aby PC nebyl zbytečně pausnutý).
+					if (this.isPlayerOnMoveHuman() && this.isComputerPlayerInGame())
 					{
-						clearMoves();
-						continue;
+						this.resumeGame();
 					}
-					else
+
+					// Vyměníme hráče na tahu.
+					this.changePlayerOnMove();
+
+					// Během tahu člověka necháme počítač přemýšlet nad očekávanou pozicí
+					// (výsledek převezme hledání tahu počítače i ve výpočetním poolu plánovače).
+					if (this.isPlayerOnMoveHuman() && getOponent() instanceof ComputerPlayer)
 					{
-						JOptionPane.showMessageDialog(null, ex.getMessage());
+						((ComputerPlayer) getOponent()).startPondering(judge, playerOnMove);
 					}
 				}
+
+				// Po zahrání tahu, je třeba aktualizovat GUI.
+				this.changeGUI();
+
 			}
+
+			// Pokud tah není validní, smažeme druhý tah a jedeme dál.
 			else
 			{
-				if (!endAnnounced)
-				{
-					// Pokud byl dosažen max. počet tahů -> vypíšeme zprávu.
-					if (this.judge.isBlindMovesCountReached())
-					{
-						JOptionPane.showMessageDialog(null, "You have reached maximum count of possible moves without taking a stone.");
+				moveTo = null;
+			}
+		}
 
-						if (isPlayerOnMoveComputer())
-						{
-							ComputerPlayer.stopThinking();
-						}
-					}
+		// Při zachycení výjimky vypíše zprávu.
+		catch (JudgeException ex)
+		{
+			// Ofuk kvůli nedeterministické chybě na nudné večery, kvůli které mě minule vyhodili :-D.
+			if (isPlayerOnMoveComputer())
+			{
+				clearMoves();
+			}
+			else
+			{
+				fireGameMessage(ex.getMessage());
+			}
+		}
 
-					if (winner > 0)
-					{
-						announceWinner();
-					}
+		return STEP_CONTINUE;
+	}
 
-					endAnnounced = true;
-				}
 
-				Thread.sleep(50);
+	/**
+	 * Spustí hledání tahu počítače ve výpočetním poolu plánovače.
+	 *
+	 * Po dokončení hledání plánovač hrací smyčku probudí.
+	 *
+	 * @param ignoredMove
+	 */
+	private void startComputerSearch(final int[][] ignoredMove)
+	{
+		final ComputerPlayer player		= (ComputerPlayer) getPlayer();
+		final Judge searchJudge			= judge;
+		final int searchPlayer			= playerOnMove;
+		final int searchIgnoredDepth	= ignoredMovesDepth;
+
+		computerSearchJudge	= searchJudge;
+		computerSearch		= scheduler.submitSearch(this, new Callable<int[][]>()
+		{
+			@Override
+			public int[][] call() throws PlayerException
+			{
+				return player.getBestMove(searchJudge, searchPlayer, ignoredMove, searchIgnoredDepth);
 			}
+		});
+	}
+
+
+	/**
+	 * Převezme výsledek dokončeného hledání tahu počítače ve výpočetním poolu.
+	 *
+	 * @return
+	 * @throws InterruptedException
+	 * @throws PlayerException
+	 */
+	private int[][] takeComputerSearch() throws InterruptedException, PlayerException
+	{
+		Future<int[][]> search = computerSearch;
+		computerSearch = null;
+
+		try
+		{
+			return search.get();
+		}
+		catch (CancellationException e)
+		{
+			return null;
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof PlayerException)
+			{
+				throw (PlayerException) e.getCause();
+			}
+
+			throw new IllegalStateException("Searching computer move failed.", e.getCause());
 		}
 	}
 }
@@ -0,0 +1,62 @@
+package tablut;
+
+/**
+ * Hodnotitel podle počtu kamenů (původní ohodnocení ComputerPlayer.getBoardValue).
+ *
+ * Počty kamenů udržuje hrací deska v bitových deskách, hodnotitel proto žádný
+ * vlastní stav nemá.
+ *
+ * @author Ondřej Tom
+ */
+public class MaterialEvaluator implements Evaluator
+{
+	/**
+	 * Hodnotitel nemá stav.
+	 *
+	 * @param board
+	 */
+	@Override
+	public void reset(PlayBoard board)
+	{
+	}
+
+
+	/**
+	 * Hodnotitel nemá stav.
+	 *
+	 * @param board
+	 * @param square
+	 * @param oldValue
+	 * @param newValue
+	 */
+	@Override
+	public void squareChanged(PlayBoard board, int square, int oldValue, int newValue)
+	{
+	}
+
+
+	/**
+	 * Vrátí rozdíl kamenů (švédské kameny se počítají dvakrát).
+	 *
+	 * @param playerOnMove
+	 * @param judge
+	 * @return
+	 */
+	@Override
+	public int evaluate(int playerOnMove, Judge judge)
+	{
+		return ComputerPlayer.getBoardValue(playerOnMove, judge);
+	}
+
+
+	/**
+	 * Vrátí nového hodnotitele.
+	 *
+	 * @return
+	 */
+	@Override
+	public Evaluator copy()
+	{
+		return new MaterialEvaluator();
+	}
+}
@@ -0,0 +1,334 @@
+package tablut;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import tablut.exceptions.StorageException;
+
+/**
+ * Knihovna zahájení.
+ *
+ * Pro pozice (Zobristův hash včetně hráče na tahu) uchovává doporučené tahy s vahou
+ * (úspěšnost tahu v partiích, ze kterých byla knihovna sestavena). Záznamy jsou
+ * seřazené podle hashe v primitivních polích a vyhledávají se půlením intervalu.
+ *
+ * Binární soubor knihovny obsahuje hlavičku (značka, verze, počet záznamů) a záznamy
+ * [hash 8B | zabalený tah 2B | váha 2B].
+ *
+ * Knihovnu sestavuje tablut.tools.OpeningBookBuilder.
+ *
+ * @author Ondřej Tom
+ */
+public class OpeningBook
+{
+	/**
+	 * Značka souboru knihovny ("TBOK").
+	 */
+	private static int FILE_MAGIC = 0x54424F4B;
+
+
+	/**
+	 * Verze formátu souboru (váže se i na Zobristovy klíče PlayBoard).
+	 */
+	private static int FILE_VERSION = 1;
+
+
+	/**
+	 * Maximální váha tahu.
+	 */
+	private static int MAX_WEIGHT = 0xFFFF;
+
+
+	/**
+	 * Hashe pozic (seřazené vzestupně).
+	 */
+	private long[] hashes;
+
+
+	/**
+	 * Zabalené tahy záznamů.
+	 */
+	private int[] moves;
+
+
+	/**
+	 * Váhy záznamů.
+	 */
+	private int[] weights;
+
+
+	/**
+	 * Náhodný generátor pro výběr mezi tahy pozice.
+	 */
+	private Random random = new Random();
+
+
+	/**
+	 * Vytvoří prázdnou knihovnu.
+	 */
+	public OpeningBook()
+	{
+		this(new long[0], new int[0], new int[0]);
+	}
+
+
+	/**
+	 * @param hashes	hashe pozic (seřazené vzestupně)
+	 * @param moves
+	 * @param weights
+	 */
+	private OpeningBook(long[] hashes, int[] moves, int[] weights)
+	{
+		this.hashes		= hashes;
+		this.moves		= moves;
+		this.weights	= weights;
+	}
+
+
+	/**
+	 * Sestaví knihovnu ze souhrnných vah tahů [hash -> (zabalený tah -> váha)].
+	 *
+	 * Tahy s nulovou vahou se vynechají.
+	 *
+	 * @param entries
+	 * @return
+	 */
+	public static OpeningBook create(Map<Long, Map<Integer, Integer>> entries)
+	{
+		List<Long> positions = new ArrayList<>(entries.keySet());
+		int count = 0, i = 0;
+
+		Collections.sort(positions);
+
+		for (Map<Integer, Integer> positionMoves : entries.values())
+		{
+			for (int weight : positionMoves.values())
+			{
+				count += weight > 0 ? 1 : 0;
+			}
+		}
+
+		long[] hashes	= new long[count];
+		int[] moves		= new int[count];
+		int[] weights	= new int[count];
+
+		for (long hash : positions)
+		{
+			for (Map.Entry<Integer, Integer> entry : entries.get(hash).entrySet())
+			{
+				if (entry.getValue() <= 0)
+				{
+					continue;
+				}
+
+				hashes[i]	= hash;
+				moves[i]	= entry.getKey();
+				weights[i]	= Math.min(MAX_WEIGHT, entry.getValue());
+				i++;
+			}
+		}
+
+		return new OpeningBook(hashes, moves, weights);
+	}
+
+
+	/**
+	 * Načte knihovnu z binárního souboru.
+	 *
+	 * @param file
+	 * @return
+	 * @throws StorageException
+	 */
+	public static OpeningBook load(File file) throws StorageException
+	{
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+		{
+			if (input.readInt() != FILE_MAGIC || input.readInt() != FILE_VERSION)
+			{
+				throw new StorageException("File " + file + " is not an opening book of this version.");
+			}
+
+			int count = input.readInt();
+
+			if (count < 0)
+			{
+				throw new StorageException("Opening book is corrupted.");
+			}
+
+			long[] hashes	= new long[count];
+			int[] moves		= new int[count];
+			int[] weights	= new int[count];
+
+			for (int i = 0; i < count; i++)
+			{
+				hashes[i]	= input.readLong();
+				moves[i]	= input.readUnsignedShort();
+				weights[i]	= input.readUnsignedShort();
+
+				if (i > 0 && hashes[i] < hashes[i - 1])
+				{
+					throw new StorageException("Opening book is corrupted.");
+				}
+			}
+
+			return new OpeningBook(hashes, moves, weights);
+		}
+		catch (IOException e)
+		{
+			throw new StorageException("Loading opening book failed: " + e.getMessage(), e);
+		}
+	}
+
+
+	/**
+	 * Uloží knihovnu do binárního souboru.
+	 *
+	 * @param file
+	 * @throws StorageException
+	 */
+	public void save(File file) throws StorageException
+	{
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+		{
+			output.writeInt(FILE_MAGIC);
+			output.writeInt(FILE_VERSION);
+			output.writeInt(hashes.length);
+
+			for (int i = 0; i < hashes.length; i++)
+			{
+				output.writeLong(hashes[i]);
+				output.writeShort(moves[i]);
+				output.writeShort(weights[i]);
+			}
+		}
+		catch (IOException e)
+		{
+			throw new StorageException("Saving opening book failed: " + e.getMessage(), e);
+		}
+	}
+
+
+	/**
+	 * Vrátí počet záznamů (tahů) knihovny.
+	 *
+	 * @return
+	 */
+	public int getSize()
+	{
+		return hashes.length;
+	}
+
+
+	/**
+	 * Vrátí index prvního záznamu pozice (nebo -1).
+	 *
+	 * @param hash
+	 * @return
+	 */
+	private int findFirst(long hash)
+	{
+		int index = Arrays.binarySearch(hashes, hash);
+
+		if (index < 0)
+		{
+			return -1;
+		}
+
+		while (index > 0 && hashes[index - 1] == hash)
+		{
+			index--;
+		}
+
+		return index;
+	}
+
+
+	/**
+	 * Vrátí tah z knihovny pro pozici (náhodně podle vah), nebo null.
+	 *
+	 * Vrácený tah musí být v pozici platný - ostatní (např. při kolizi hashe) se přeskočí.
+	 *
+	 * @param judge
+	 * @param playerOnMove
+	 * @return
+	 */
+	public int[][] getMove(Judge judge, int playerOnMove)
+	{
+		int first = findFirst(judge.getBoard().getHash(playerOnMove));
+
+		if (first < 0)
+		{
+			return null;
+		}
+
+		int[] legalMoves	= new int[Judge.MAX_MOVES_COUNT];
+		int legalCount		= judge.generateMoves(playerOnMove, legalMoves);
+		int total			= 0, i;
+
+		Arrays.sort(legalMoves, 0, legalCount);
+
+		for (i = first; i < hashes.length && hashes[i] == hashes[first]; i++)
+		{
+			if (Arrays.binarySearch(legalMoves, 0, legalCount, moves[i]) >= 0)
+			{
+				total += weights[i];
+			}
+		}
+
+		if (total == 0)
+		{
+			return null;
+		}
+
+		int pick = random.nextInt(total);
+
+		for (i = first; i < hashes.length && hashes[i] == hashes[first]; i++)
+		{
+			if (Arrays.binarySearch(legalMoves, 0, legalCount, moves[i]) < 0)
+			{
+				continue;
+			}
+
+			pick -= weights[i];
+
+			if (pick < 0)
+			{
+				break;
+			}
+		}
+
+		return Judge.unpackMove(moves[i]);
+	}
+
+
+	/**
+	 * Vrátí tahy pozice s vahami [zabalený tah -> váha].
+	 *
+	 * @param hash
+	 * @return
+	 */
+	public Map<Integer, Integer> getMoves(long hash)
+	{
+		Map<Integer, Integer> result = new HashMap<>();
+		int first = findFirst(hash);
+
+		for (int i = first; i >= 0 && i < hashes.length && hashes[i] == hash; i++)
+		{
+			result.put(moves[i], weights[i]);
+		}
+
+		return result;
+	}
+}
@@ -29,7 +29,5 @@ public class PcPlayPauseButton extends JButton
 		{
 			this.setEnabled(false);
 		}
-
-		addActionListener(manager);
 	}
 }
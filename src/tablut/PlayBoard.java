@@ -2,10 +2,15 @@ package tablut;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Reprezentace hrací desky.
  *
+ * Vedle dvourozměrného pole udržuje pro každý typ kamene bitovou desku (dvojice longů),
+ * díky které jsou počty kamenů, pozice krále i test prázdného pole bez procházení desky.
+ * Současně průběžně počítá Zobristův hash pozice a hlásí změny polí připojenému hodnotiteli.
+ *
  * @author Ondřej Tom
  */
 public class PlayBoard implements Cloneable
@@ -40,18 +45,171 @@ public class PlayBoard implements Cloneable
 	public static int SWEDES_STONES_COUNT = 8;
 
 
+	/**
+	 * Počet polí hrací desky.
+	 */
+	public static int SQUARES_COUNT = (SIZE + 1) * (SIZE + 1);
+
+
+	/**
+	 * Příznaky polí - chráněné pole (rohy a králův palác).
+	 */
+	public static final int FLAG_PROTECTED = 1;
+
+
+	/**
+	 * Příznaky polí - králův palác.
+	 */
+	public static final int FLAG_KINGS_PALACE = 2;
+
+
+	/**
+	 * Příznaky polí - roh (únikové pole krále).
+	 */
+	public static final int FLAG_CORNER = 4;
+
+
+	/**
+	 * Směry paprsků a sousedů (ve stejném pořadí, v jakém se generují tahy).
+	 */
+	public static final int DOWN	= 0;
+	public static final int RIGHT	= 1;
+	public static final int UP		= 2;
+	public static final int LEFT	= 3;
+
+
+	/**
+	 * Příznaky polí [index pole].
+	 */
+	public static final int[] SQUARE_FLAGS = new int[SQUARES_COUNT];
+
+
+	/**
+	 * Paprsky polí [index pole][směr] - indexy polí v daném směru, od nejbližšího po okraj desky.
+	 */
+	public static final int[][][] RAYS = new int[SQUARES_COUNT][4][];
+
+
+	/**
+	 * Sousední pole [index pole][směr] - index souseda, nebo -1 mimo desku.
+	 */
+	public static final int[][] NEIGHBOURS = new int[SQUARES_COUNT][4];
+
+
+	static
+	{
+		int[] dx = {1, 0, -1, 0}, dy = {0, 1, 0, -1};
+		int x, y, direction, length, i, square;
+
+		for (int[] protectedField : PROTECTED_FIELDS)
+		{
+			square = getSquareIndex(protectedField[0], protectedField[1]);
+			SQUARE_FLAGS[square] |= FLAG_PROTECTED;
+			SQUARE_FLAGS[square] |= (protectedField[0] == KINGS_PALACE && protectedField[1] == KINGS_PALACE) ? FLAG_KINGS_PALACE : FLAG_CORNER;
+		}
+
+		for (x = 0; x <= SIZE; x++)
+		{
+			for (y = 0; y <= SIZE; y++)
+			{
+				square = getSquareIndex(x, y);
+
+				for (direction = 0; direction < 4; direction++)
+				{
+					// Délka paprsku = počet polí do okraje desky.
+					length = 0;
+					while (isInside(x + dx[direction] * (length + 1), y + dy[direction] * (length + 1)))
+					{
+						length++;
+					}
+
+					RAYS[square][direction] = new int[length];
+
+					for (i = 0; i < length; i++)
+					{
+						RAYS[square][direction][i] = getSquareIndex(x + dx[direction] * (i + 1), y + dy[direction] * (i + 1));
+					}
+
+					NEIGHBOURS[square][direction] = length > 0 ? RAYS[square][direction][0] : -1;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Semínko generátoru Zobristových klíčů (pevné, aby byl hash stejný mezi spuštěními).
+	 */
+	private static final long ZOBRIST_SEED = 0x7AB1D7L;
+
+
+	/**
+	 * Zobristovy klíče [hodnota pole][index pole].
+	 */
+	private static final long[][] ZOBRIST_KEYS = new long[TablutSquare.KING + 1][SQUARES_COUNT];
+
+
+	/**
+	 * Zobristův klíč pro švédského hráče na tahu.
+	 */
+	private static final long ZOBRIST_SWEDEN_ON_MOVE;
+
+
+	static
+	{
+		Random random = new Random(ZOBRIST_SEED);
+
+		for (int value = TablutSquare.RUSSIAN; value <= TablutSquare.KING; value++)
+		{
+			for (int index = 0; index < SQUARES_COUNT; index++)
+			{
+				ZOBRIST_KEYS[value][index] = random.nextLong();
+			}
+		}
+
+		ZOBRIST_SWEDEN_ON_MOVE = random.nextLong();
+	}
+
+
 	/**
 	 * Dvourozměrné pole hrací desky [řádek][sloupec].
 	 */
 	private int[][] board;
 
 
+	/**
+	 * Bitové desky jednotlivých hodnot polí - dolních 64 polí (index = řádek * 9 + sloupec).
+	 *
+	 * Index pole odpovídá hodnotě pole (ruský kámen, švédský kámen, král).
+	 */
+	private long[] lowBits = new long[TablutSquare.KING + 1];
+
+
+	/**
+	 * Bitové desky jednotlivých hodnot polí - zbylých 17 polí.
+	 */
+	private long[] highBits = new long[TablutSquare.KING + 1];
+
+
+	/**
+	 * Zobristův hash rozmístění kamenů (aktualizuje se průběžně se změnami desky).
+	 */
+	private long hash = 0;
+
+
+	/**
+	 * Připojený hodnotitel, kterému se hlásí změny polí (nebo null).
+	 */
+	private Evaluator evaluator = null;
+
+
 	/**
 	 * Inicializuje novou hrací desku.
 	 */
 	public PlayBoard()
 	{
 		board = this.getNewPlayBoard();
+		loadBits();
 	}
 
 
@@ -63,6 +221,24 @@ public class PlayBoard implements Cloneable
 	public PlayBoard(int[][] board)
 	{
 		this.board = board;
+		loadBits();
+	}
+
+
+	/**
+	 * Vytvoří kopii hrací desky (včetně bitových desek).
+	 *
+	 * @param board
+	 * @param lowBits
+	 * @param highBits
+	 * @param hash		Zobristův hash pozice
+	 */
+	private PlayBoard(int[][] board, long[] lowBits, long[] highBits, long hash)
+	{
+		this.board		= board;
+		this.lowBits	= lowBits;
+		this.highBits	= highBits;
+		this.hash		= hash;
 	}
 
 
@@ -85,6 +261,211 @@ public class PlayBoard implements Cloneable
 	public void setBoard(int[][] board)
 	{
 		this.board = board;
+		loadBits();
+
+		if (evaluator != null)
+		{
+			evaluator.reset(this);
+		}
+	}
+
+
+	/**
+	 * Připojí hodnotitele (nebo null), který bude průběžně informován o změnách polí.
+	 *
+	 * @param evaluator
+	 */
+	public void setEvaluator(Evaluator evaluator)
+	{
+		this.evaluator = evaluator;
+
+		if (evaluator != null)
+		{
+			evaluator.reset(this);
+		}
+	}
+
+
+	/**
+	 * Vrátí připojeného hodnotitele (nebo null).
+	 *
+	 * @return
+	 */
+	public Evaluator getEvaluator()
+	{
+		return evaluator;
+	}
+
+
+	/**
+	 * Ohlásí změnu pole připojenému hodnotiteli.
+	 *
+	 * @param index
+	 * @param oldValue
+	 * @param newValue
+	 */
+	private void squareChanged(int index, int oldValue, int newValue)
+	{
+		if (evaluator != null)
+		{
+			evaluator.squareChanged(this, index, oldValue, newValue);
+		}
+	}
+
+
+	/**
+	 * Vrátí index pole v bitové desce.
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public static int getSquareIndex(int x, int y)
+	{
+		return x * (SIZE + 1) + y;
+	}
+
+
+	/**
+	 * Zjistí, zda-li souřadnice leží na hrací desce.
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	private static boolean isInside(int x, int y)
+	{
+		return x >= 0 && x <= SIZE && y >= 0 && y <= SIZE;
+	}
+
+
+	/**
+	 * Zjistí, zda-li je hodnota sledována v bitových deskách.
+	 *
+	 * @param value
+	 * @return
+	 */
+	private boolean isBitValue(int value)
+	{
+		return value > 0 && value < lowBits.length;
+	}
+
+
+	/**
+	 * Nastaví bit pole v bitové desce danné hodnoty.
+	 *
+	 * @param value
+	 * @param index
+	 */
+	private void setBit(int value, int index)
+	{
+		if (!isBitValue(value))
+		{
+			return;
+		}
+
+		if (index < 64)
+		{
+			lowBits[value] |= 1L << index;
+		}
+		else
+		{
+			highBits[value] |= 1L << (index - 64);
+		}
+
+		hash ^= ZOBRIST_KEYS[value][index];
+	}
+
+
+	/**
+	 * Vynuluje bit pole v bitové desce danné hodnoty.
+	 *
+	 * @param value
+	 * @param index
+	 */
+	private void clearBit(int value, int index)
+	{
+		if (!isBitValue(value))
+		{
+			return;
+		}
+
+		if (index < 64)
+		{
+			lowBits[value] &= ~(1L << index);
+		}
+		else
+		{
+			highBits[value] &= ~(1L << (index - 64));
+		}
+
+		hash ^= ZOBRIST_KEYS[value][index];
+	}
+
+
+	/**
+	 * Sestaví bitové desky z dvourozměrného pole.
+	 */
+	private void loadBits()
+	{
+		int i,j;
+
+		lowBits		= new long[TablutSquare.KING + 1];
+		highBits	= new long[TablutSquare.KING + 1];
+		hash		= 0;
+
+		for (i = 0; i < board.length; i++)
+		{
+			for (j = 0; j < board[i].length; j++)
+			{
+				setBit(board[i][j], getSquareIndex(i, j));
+			}
+		}
+	}
+
+
+	/**
+	 * Vrátí Zobristův hash rozmístění kamenů.
+	 *
+	 * @return
+	 */
+	public long getHash()
+	{
+		return hash;
+	}
+
+
+	/**
+	 * Vrátí Zobristův hash pozice včetně hráče na tahu.
+	 *
+	 * @param playerOnMove
+	 * @return
+	 */
+	public long getHash(int playerOnMove)
+	{
+		return playerOnMove == TablutSquare.SWEDEN ? hash ^ ZOBRIST_SWEDEN_ON_MOVE : hash;
+	}
+
+
+	/**
+	 * Vrátí bitovou desku obsazených polí (dolních 64 polí).
+	 *
+	 * @return
+	 */
+	private long getOccupiedLowBits()
+	{
+		return lowBits[TablutSquare.RUSSIAN] | lowBits[TablutSquare.SWEDEN] | lowBits[TablutSquare.KING];
+	}
+
+
+	/**
+	 * Vrátí bitovou desku obsazených polí (zbylých 17 polí).
+	 *
+	 * @return
+	 */
+	private long getOccupiedHighBits()
+	{
+		return highBits[TablutSquare.RUSSIAN] | highBits[TablutSquare.SWEDEN] | highBits[TablutSquare.KING];
 	}
 
 
@@ -117,7 +498,7 @@ public class PlayBoard implements Cloneable
 	 */
 	public boolean isCoordBlank(int[] coord)
 	{
-		return (board[coord[0]][coord[1]] == 0);
+		return isSquareBlank(getSquareIndex(coord[0], coord[1]));
 	}
 
 
@@ -129,15 +510,32 @@ public class PlayBoard implements Cloneable
 	 */
 	public boolean isProtectedField(int[] coord)
 	{
-		for (int[] protectedField : this.PROTECTED_FIELDS)
-		{
-			if (coord[0] == protectedField[0] && coord[1] == protectedField[1])
-			{
-				return true;
-			}
-		}
+		return isProtectedField(coord[0], coord[1]);
+	}
 
-		return false;
+
+	/**
+	 * Zkontroluje, zda-li se jedná o královo pole.
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public boolean isProtectedField(int x, int y)
+	{
+		return (SQUARE_FLAGS[getSquareIndex(x, y)] & FLAG_PROTECTED) != 0;
+	}
+
+
+	/**
+	 * Zkontroluje, zda-li je pole (index) chráněné.
+	 *
+	 * @param square
+	 * @return
+	 */
+	public static boolean isProtectedSquare(int square)
+	{
+		return (SQUARE_FLAGS[square] & FLAG_PROTECTED) != 0;
 	}
 
 
@@ -149,7 +547,7 @@ public class PlayBoard implements Cloneable
 	 */
 	public boolean isKingsPalaceField(int[] coord)
 	{
-		return (coord[0] == KINGS_PALACE && coord[1] == KINGS_PALACE);
+		return (SQUARE_FLAGS[getSquareIndex(coord[0], coord[1])] & FLAG_KINGS_PALACE) != 0;
 	}
 
 
@@ -160,7 +558,40 @@ public class PlayBoard implements Cloneable
 	 */
 	private void removeField(int[] coord)
 	{
+		int value = board[coord[0]][coord[1]];
+
+		clearBit(value, getSquareIndex(coord[0], coord[1]));
 		board[coord[0]][coord[1]] = 0;
+		squareChanged(getSquareIndex(coord[0], coord[1]), value, 0);
+	}
+
+
+	/**
+	 * Zkontroluje, zda-li je pole (index) prázdné.
+	 *
+	 * @param square
+	 * @return
+	 */
+	public boolean isSquareBlank(int square)
+	{
+		if (square < 64)
+		{
+			return (getOccupiedLowBits() & (1L << square)) == 0;
+		}
+
+		return (getOccupiedHighBits() & (1L << (square - 64))) == 0;
+	}
+
+
+	/**
+	 * Vrátí hodnotu pole (index) hrací desky.
+	 *
+	 * @param square
+	 * @return
+	 */
+	public int getSquareValue(int square)
+	{
+		return board[square / (SIZE + 1)][square % (SIZE + 1)];
 	}
 
 
@@ -177,6 +608,24 @@ public class PlayBoard implements Cloneable
 	}
 
 
+	/**
+	 * Nastaví hodnotu pole hrací desky.
+	 *
+	 * @param x
+	 * @param y
+	 * @param value
+	 */
+	public void setCoordsValue(int x, int y, int value)
+	{
+		int index = getSquareIndex(x, y), oldValue = board[x][y];
+
+		clearBit(oldValue, index);
+		board[x][y] = value;
+		setBit(value, index);
+		squareChanged(index, oldValue, value);
+	}
+
+
 	/**
 	 * Táhne kamenem na hrací desce.
 	 *
@@ -184,15 +633,37 @@ public class PlayBoard implements Cloneable
 	 * @param to
 	 */
 	public void makeMove(int[] from, int[] to)
+	{
+		makeMove(from[0], from[1], to[0], to[1]);
+	}
+
+
+	/**
+	 * Táhne kamenem na hrací desce.
+	 *
+	 * @param fromX
+	 * @param fromY
+	 * @param toX
+	 * @param toY
+	 */
+	public void makeMove(int fromX, int fromY, int toX, int toY)
 	{
 		// Načte hodnotu pole, z kterého se táhne.
-		int fromValue = board[from[0]][from[1]];
+		int fromValue = board[fromX][fromY], toValue = board[toX][toY];
+
+		// Pole, na které se táhne, by mělo být prázdné - pro jistotu jej vyčistíme i v bitových deskách.
+		clearBit(toValue, getSquareIndex(toX, toY));
 
 		// Vynuluje pole, z kterého se táhne.
-		board[from[0]][from[1]] = 0;
+		board[fromX][fromY] = 0;
+		clearBit(fromValue, getSquareIndex(fromX, fromY));
 
 		// Nastaví hodnotu polen, na které se táhne.
-		board[to[0]][to[1]] = fromValue;
+		board[toX][toY] = fromValue;
+		setBit(fromValue, getSquareIndex(toX, toY));
+
+		squareChanged(getSquareIndex(fromX, fromY), fromValue, 0);
+		squareChanged(getSquareIndex(toX, toY), toValue, fromValue);
 	}
 
 
@@ -218,20 +689,7 @@ public class PlayBoard implements Cloneable
 	 */
 	public boolean isValueExist(int value)
 	{
-		int i,j;
-
-		for (i = 0; i < board.length; i++)
-		{
-			for (j = 0; j < board[i].length; j++)
-			{
-				if (board[i][j] == value)
-				{
-					return true;
-				}
-			}
-		}
-
-		return false;
+		return getValueOnBoardCount(value) > 0;
 	}
 
 
@@ -243,6 +701,18 @@ public class PlayBoard implements Cloneable
 	 */
 	public int getValueOnBoardCount(int value)
 	{
+		// Kameny sledované bitovými deskami spočítáme přes popcount.
+		if (isBitValue(value))
+		{
+			return Long.bitCount(lowBits[value]) + Long.bitCount(highBits[value]);
+		}
+
+		// Prázdná pole jsou doplňkem obsazených polí.
+		if (value == 0)
+		{
+			return SQUARES_COUNT - Long.bitCount(getOccupiedLowBits()) - Long.bitCount(getOccupiedHighBits());
+		}
+
 		int count = 0, i, j;
 
 		for (i = 0; i < board.length; i++)
@@ -267,20 +737,35 @@ public class PlayBoard implements Cloneable
 	 */
 	public int[] getKingsPosition()
 	{
-		int i,j;
+		int index = getKingsSquare();
 
-		for (i = 0; i < board.length; i++)
+		if (index < 0)
 		{
-			for (j = 0; j < board[i].length; j++)
-			{
-				if (board[i][j] == TablutSquare.KING)
-				{
-					return new int[]{i, j};
-				}
-			}
+			return null;
 		}
 
-		return null;
+		return new int[]{index / (SIZE + 1), index % (SIZE + 1)};
+	}
+
+
+	/**
+	 * Vrátí index pole krále (nebo -1, pokud král na desce není).
+	 *
+	 * @return
+	 */
+	public int getKingsSquare()
+	{
+		if (lowBits[TablutSquare.KING] != 0)
+		{
+			return Long.numberOfTrailingZeros(lowBits[TablutSquare.KING]);
+		}
+
+		if (highBits[TablutSquare.KING] != 0)
+		{
+			return 64 + Long.numberOfTrailingZeros(highBits[TablutSquare.KING]);
+		}
+
+		return -1;
 	}
 
 
@@ -295,6 +780,30 @@ public class PlayBoard implements Cloneable
 		int i,j;
 		List<int[]> positions = new ArrayList<>();
 
+		// Projdeme pouze nastavené bity (vzestupně, tedy ve stejném pořadí jako při procházení desky).
+		if (isBitValue(value))
+		{
+			long bits = lowBits[value];
+
+			while (bits != 0)
+			{
+				i = Long.numberOfTrailingZeros(bits);
+				positions.add(new int[]{i / (SIZE + 1), i % (SIZE + 1)});
+				bits &= bits - 1;
+			}
+
+			bits = highBits[value];
+
+			while (bits != 0)
+			{
+				i = 64 + Long.numberOfTrailingZeros(bits);
+				positions.add(new int[]{i / (SIZE + 1), i % (SIZE + 1)});
+				bits &= bits - 1;
+			}
+
+			return positions;
+		}
+
 		for (i = 0; i < board.length; i++)
 		{
 			for (j = 0; j < board[i].length; j++)
@@ -310,6 +819,43 @@ public class PlayBoard implements Cloneable
 	}
 
 
+	/**
+	 * Zapíše indexy všech polí s danou hodnotou do pole (vzestupně, bez alokace).
+	 *
+	 * @param value
+	 * @param squares	pole pro indexy (musí mít místo pro všechny výskyty)
+	 * @return počet zapsaných indexů
+	 */
+	public int getValueSquares(int value, int[] squares)
+	{
+		int count = 0;
+		long bits;
+
+		if (!isBitValue(value))
+		{
+			return 0;
+		}
+
+		bits = lowBits[value];
+
+		while (bits != 0)
+		{
+			squares[count++] = Long.numberOfTrailingZeros(bits);
+			bits &= bits - 1;
+		}
+
+		bits = highBits[value];
+
+		while (bits != 0)
+		{
+			squares[count++] = 64 + Long.numberOfTrailingZeros(bits);
+			bits &= bits - 1;
+		}
+
+		return count;
+	}
+
+
 	/**
 	 * Zkopíruje hrací desku.
 	 *
@@ -373,14 +919,14 @@ public class PlayBoard implements Cloneable
 
 
 	/**
-	 * Vrátí duplikát hrací desky.
+	 * Vrátí duplikát hrací desky (bez připojeného hodnotitele).
 	 *
 	 * @return
 	 */
 	@Override
 	public Object clone()
 	{
-		Cloneable duplicate = new PlayBoard(this.cloneBoard());
+		Cloneable duplicate = new PlayBoard(this.cloneBoard(), lowBits.clone(), highBits.clone(), hash);
 		return duplicate;
 	}
 }
@@ -15,12 +15,26 @@ public class PlayerFactory
 	 * @return
 	 */
 	public static Player createPlayer(int playerIndex, int difficulty)
+	{
+		return createPlayer(playerIndex, difficulty, 0);
+	}
+
+
+	/**
+	 * Podle zvolených parametrů vytvoří instanci hráče s časovým limitem na tah.
+	 *
+	 * @param playerIndex
+	 * @param difficulty
+	 * @param timeLimit		časový limit počítače na jeden tah (ms), 0 = bez limitu
+	 * @return
+	 */
+	public static Player createPlayer(int playerIndex, int difficulty, int timeLimit)
 	{
 		if (playerIndex == 0)
 		{
 			return new HumanPlayer();
 		}
 
-		return new ComputerPlayer(difficulty);
+		return new ComputerPlayer(difficulty, timeLimit);
 	}
 }
@@ -0,0 +1,1354 @@
+package tablut;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import tablut.exceptions.JudgeException;
+import tablut.exceptions.PlayerException;
+import tablut.exceptions.SearchAbortedException;
+
+/**
+ * Prohledávání stromu tahů (alfa-beta).
+ *
+ * Instance drží vlastní kopii rozhodčího, na které se tahy hrají a vrací
+ * na místě, a stav jednoho prohledávání (transpoziční tabulka, časový limit,
+ * počet navštívených uzlů). Jedna instance smí být používána pouze jedním vláknem.
+ *
+ * Tahy se v uzlu prohledávají v pořadí: úniky krále a zajímající tahy, tah
+ * z transpoziční tabulky, dva "killer" tahy dané úrovně a nakonec ostatní tahy
+ * podle historie ořezání (tabulka odkud/kam). Killer tahy a historie se drží
+ * po celou dobu života instance, takže je využívá i iterativní prohlubování.
+ *
+ * Prohledávání je variantou PVS - první tah uzlu se prohledává s plným oknem,
+ * ostatní s nulovým oknem a pouze pokud překonají alfu, prohledají se znovu.
+ * V kořeni se při iterativním prohlubování použije aspirační okno kolem hodnoty
+ * předchozí iterace. Hlavní varianta (očekávaná posloupnost tahů) je dostupná
+ * po každém dokončeném prohledávání.
+ *
+ * Po dosažení nominální hloubky pokračuje klidové prohledávání (quiescence),
+ * které zkoumá pouze zajímající tahy a úniky krále do rohu, aby se ohodnocení
+ * nepočítalo uprostřed výměny. Každé klidové prohledávání má vlastní rozpočet uzlů.
+ *
+ * Pokud je nastavena tablebáze koncovek, pozice v ní obsažené (mimo kořen) se
+ * neprohledávají a dostanou přesný výsledek. Tablebáze zná pouze výhru/prohru/remízu,
+ * proto se vyhrané pozice mezi sebou rozliší ohodnocením desky.
+ *
+ * @author Ondřej Tom
+ */
+public class SearchEngine
+{
+	/**
+	 * Po kolika uzlech se kontroluje časový limit a zrušení hledání.
+	 */
+	private static int DEADLINE_CHECK_NODES = 1024;
+
+
+	/**
+	 * Maximální vzdálenost uzlu od kořene.
+	 */
+	public static int MAX_PLY = 64;
+
+
+	/**
+	 * Hodnota pro chybějící tah.
+	 */
+	private static int NO_MOVE = -1;
+
+
+	/**
+	 * Skóre řazení - únik krále do rohu.
+	 */
+	private static int ORDER_ESCAPE = 5000000;
+
+
+	/**
+	 * Skóre řazení - zajímající tah.
+	 */
+	private static int ORDER_CAPTURE = 4000000;
+
+
+	/**
+	 * Skóre řazení - tah z transpoziční tabulky.
+	 */
+	private static int ORDER_TABLE_MOVE = 3000000;
+
+
+	/**
+	 * Skóre řazení - killer tah (první killer má o jedna více).
+	 */
+	private static int ORDER_KILLER = 2000000;
+
+
+	/**
+	 * Horní mez hodnot v tabulce historie (při překročení se tabulka zmenší na polovinu).
+	 */
+	private static int HISTORY_MAX = 1000000;
+
+
+	/**
+	 * Výchozí rozpočet uzlů jednoho klidového prohledávání.
+	 */
+	public static int DEFAULT_QUIESCENCE_NODES_LIMIT = 1000;
+
+
+	/**
+	 * Poloviční šířka aspiračního okna kolem hodnoty předchozí iterace (půl ruského kamene).
+	 */
+	private static int ASPIRATION_WINDOW = 50;
+
+
+	/**
+	 * Ohodnocení výhry podle tablebáze (mezi LOT a výhrou nalezenou prohledáváním).
+	 */
+	private static int TABLEBASE_WIN = (ComputerPlayer.LOT + ComputerPlayer.MAX) / 2;
+
+
+	/**
+	 * Rozsah, o který se ohodnocení výhry podle tablebáze posouvá ohodnocením desky.
+	 */
+	private static int TABLEBASE_RANGE = (ComputerPlayer.MAX - ComputerPlayer.LOT) / 4;
+
+
+	/**
+	 * Rozhodčí (kopie), nad kterým probíhá prohledávání.
+	 */
+	private Judge judge;
+
+
+	/**
+	 * Transpoziční tabulka (nebo null).
+	 */
+	private TranspositionTable table;
+
+
+	/**
+	 * Hodnotitel pozic (připojený k desce rozhodčího).
+	 */
+	private Evaluator evaluator;
+
+
+	/**
+	 * Tablebáze koncovek (nebo null).
+	 */
+	private EndgameTablebase tablebase = null;
+
+
+	/**
+	 * Počet ohodnocení pozic podle tablebáze (závisí na počtu tahů bez zajmutí).
+	 */
+	private long tablebaseScores = 0;
+
+
+	/**
+	 * Čas (ms), kdy musí prohledávání skončit.
+	 */
+	private long deadline = Long.MAX_VALUE;
+
+
+	/**
+	 * Statistiky prohledávání (počty uzlů, zásahy tabulek, ořezání).
+	 */
+	private SearchStatistics statistics = new SearchStatistics();
+
+
+	/**
+	 * Rozpočet uzlů jednoho klidového prohledávání (0 = klidové prohledávání vypnuto).
+	 */
+	private int quiescenceNodesLimit = DEFAULT_QUIESCENCE_NODES_LIMIT;
+
+
+	/**
+	 * Zbývající uzly aktuálního klidového prohledávání.
+	 */
+	private int quiescenceNodesLeft = 0;
+
+
+	/**
+	 * Příznak zastavení prohledávání (nastavuje jiné vlákno).
+	 */
+	private volatile boolean stopped = false;
+
+
+	/**
+	 * Sdílený příznak zrušení hledání (nastavuje jiné vlákno, nebo null).
+	 */
+	private AtomicBoolean cancelled = null;
+
+
+	/**
+	 * Buffery pro generování tahů - jeden pro každou vzdálenost od kořene.
+	 */
+	private int[][] moveBuffers = new int[MAX_PLY + 1][];
+
+
+	/**
+	 * Buffery se skóre řazení tahů - jeden pro každou vzdálenost od kořene.
+	 */
+	private int[][] scoreBuffers = new int[MAX_PLY + 1][];
+
+
+	/**
+	 * Killer tahy (tahy, které způsobily ořezání) - dva pro každou vzdálenost od kořene.
+	 */
+	private int[][] killers = new int[MAX_PLY + 1][2];
+
+
+	/**
+	 * Tabulka historie [odkud][kam] - jak často a jak hluboko tah způsobil ořezání.
+	 */
+	private int[][] history = new int[PlayBoard.SQUARES_COUNT][PlayBoard.SQUARES_COUNT];
+
+
+	/**
+	 * Hlavní varianty [vzdálenost od kořene][tahy] - trojúhelníková tabulka.
+	 */
+	private int[][] principalVariation = new int[MAX_PLY + 2][MAX_PLY + 2];
+
+
+	/**
+	 * Délky hlavních variant (index za posledním tahem varianty dané úrovně).
+	 */
+	private int[] principalVariationLength = new int[MAX_PLY + 2];
+
+
+	/**
+	 * Ohodnocení kořene z posledního dokončeného prohledávání.
+	 */
+	private int lastScore = 0;
+
+
+	/**
+	 * Příznak, že je k dispozici ohodnocení z předchozího prohledávání.
+	 */
+	private boolean hasLastScore = false;
+
+
+	/**
+	 * Posun pořadí tahů v kořeni (pomocná vlákna tak prohledávají tahy v jiném pořadí).
+	 */
+	private int rootOffset = 0;
+
+
+	/**
+	 * Inicializuje prohledávání s výchozím hodnotitelem (ComputerPlayer.getDefaultEvaluator).
+	 *
+	 * @param judge	rozhodčí aktuální pozice (prohledává se jeho kopie)
+	 * @param table	transpoziční tabulka (nebo null)
+	 */
+	public SearchEngine(Judge judge, TranspositionTable table)
+	{
+		this(judge, table, ComputerPlayer.getDefaultEvaluator());
+	}
+
+
+	/**
+	 * @param judge		rozhodčí aktuální pozice (prohledává se jeho kopie)
+	 * @param table		transpoziční tabulka (nebo null)
+	 * @param evaluator	hodnotitel pozic (prohledává se s jeho kopií)
+	 */
+	public SearchEngine(Judge judge, TranspositionTable table, Evaluator evaluator)
+	{
+		this.judge		= (Judge) judge.clone();
+		this.table		= table;
+		this.evaluator	= evaluator.copy();
+
+		this.judge.getBoard().setEvaluator(this.evaluator);
+
+		for (int[] plyKillers : killers)
+		{
+			Arrays.fill(plyKillers, NO_MOVE);
+		}
+	}
+
+
+	/**
+	 * Nastaví čas (ms), kdy musí prohledávání skončit.
+	 *
+	 * @param deadline
+	 */
+	public void setDeadline(long deadline)
+	{
+		this.deadline = deadline;
+	}
+
+
+	/**
+	 * Nastaví posun pořadí tahů v kořeni.
+	 *
+	 * @param rootOffset
+	 */
+	public void setRootOffset(int rootOffset)
+	{
+		this.rootOffset = rootOffset;
+	}
+
+
+	/**
+	 * Nastaví tablebázi koncovek (null = bez tablebáze).
+	 *
+	 * @param tablebase
+	 */
+	public void setTablebase(EndgameTablebase tablebase)
+	{
+		this.tablebase = tablebase;
+	}
+
+
+	/**
+	 * Nastaví rozpočet uzlů jednoho klidového prohledávání (0 = klidové prohledávání vypnuto).
+	 *
+	 * @param quiescenceNodesLimit
+	 */
+	public void setQuiescenceNodesLimit(int quiescenceNodesLimit)
+	{
+		this.quiescenceNodesLimit = quiescenceNodesLimit;
+	}
+
+
+	/**
+	 * Nastaví sdílený příznak zrušení hledání (null = bez příznaku).
+	 *
+	 * Po jeho nastavení (z libovolného vlákna) skončí prohledávání stejně jako při zastavení.
+	 *
+	 * @param cancelled
+	 */
+	public void setCancelled(AtomicBoolean cancelled)
+	{
+		this.cancelled = cancelled;
+	}
+
+
+	/**
+	 * Zastaví prohledávání (lze volat z jiného vlákna).
+	 */
+	public void stop()
+	{
+		stopped = true;
+	}
+
+
+	/**
+	 * Vrátí počet navštívených uzlů.
+	 *
+	 * @return
+	 */
+	public long getNodes()
+	{
+		return statistics.nodes;
+	}
+
+
+	/**
+	 * Vrátí počet uzlů klidového prohledávání.
+	 *
+	 * @return
+	 */
+	public long getQuiescenceNodes()
+	{
+		return statistics.quiescenceNodes;
+	}
+
+
+	/**
+	 * Vrátí statistiky prohledávání (průběžně aktualizované, za celou dobu života instance).
+	 *
+	 * @return
+	 */
+	public SearchStatistics getStatistics()
+	{
+		return statistics;
+	}
+
+
+	/**
+	 * Vrátí ohodnocení kořene z posledního dokončeného prohledávání.
+	 *
+	 * @return
+	 */
+	public int getLastScore()
+	{
+		return lastScore;
+	}
+
+
+	/**
+	 * Vrátí hlavní variantu posledního dokončeného prohledávání (nejlepší tah a očekávané odpovědi).
+	 *
+	 * Varianta může být kratší než hloubka prohledávání (např. při použití transpoziční tabulky).
+	 *
+	 * @return
+	 */
+	public List<int[][]> getPrincipalVariation()
+	{
+		List<int[][]> moves = new ArrayList<>();
+
+		for (int i = 0; i < principalVariationLength[0]; i++)
+		{
+			moves.add(Judge.unpackMove(principalVariation[0][i]));
+		}
+
+		return moves;
+	}
+
+
+	/**
+	 * Započítá uzel a případně zkontroluje vypršení časového limitu, zastavení nebo zrušení.
+	 *
+	 * @throws SearchAbortedException
+	 */
+	private void countNode() throws SearchAbortedException
+	{
+		statistics.nodes++;
+
+		if (statistics.nodes % DEADLINE_CHECK_NODES == 0)
+		{
+			if (stopped || (cancelled != null && cancelled.get()))
+			{
+				throw new SearchAbortedException("Search was stopped.");
+			}
+
+			if (System.currentTimeMillis() >= deadline)
+			{
+				throw new SearchAbortedException("Search time limit exceeded.");
+			}
+		}
+	}
+
+
+	/**
+	 * Algoritmus AlfaBeta.
+	 *
+	 * Vrací ohodnocení aktuálního stavu hráče na základě ořezávání alfa-beta ( http://en.wikipedia.org/wiki/Alpha%E2%80%93beta_pruning ).
+	 * Výsledky se ukládají do transpoziční tabulky (pokud je nastavena).
+	 *
+	 * @param playerOnMove
+	 * @param deep
+	 * @param alfa
+	 * @param beta
+	 * @param ply			vzdálenost uzlu od kořene
+	 * @return
+	 * @throws JudgeException
+	 * @throws SearchAbortedException
+	 */
+	private int alfabeta(int playerOnMove, int deep, int alfa, int beta, int ply) throws JudgeException, SearchAbortedException
+	{
+		countNode();
+
+		principalVariationLength[ply] = ply;
+
+		// Pokud hráč na tahu zvítězil, vrátíme MAX.
+		if (judge.isPlayerWinner(playerOnMove))
+		{
+			return ComputerPlayer.MAX;
+		}
+
+		// Pokud hráč na tahu prohrál, vrátíme -MAX.
+		if (judge.isPlayerLooser(playerOnMove))
+		{
+			return -ComputerPlayer.MAX;
+		}
+
+		// Pozici z tablebáze neprohledáváme (v kořeni potřebujeme tah).
+		if (tablebase != null && ply > 0)
+		{
+			int result = tablebase.probe(judge.getBoard(), playerOnMove, judge.getBlindMovesCount());
+
+			if (result != EndgameTablebase.UNKNOWN)
+			{
+				statistics.tablebaseHits++;
+				tablebaseScores++;
+
+				return getTablebaseScore(playerOnMove, result);
+			}
+		}
+
+		// Pokud jsme dosáhli max. hloubky, vrátíme ohodnocení desky (po doznění výměn).
+		if (deep <= 0 || ply >= MAX_PLY)
+		{
+			if (quiescenceNodesLimit > 0 && ply < MAX_PLY)
+			{
+				quiescenceNodesLeft = quiescenceNodesLimit;
+
+				return quiesce(playerOnMove, alfa, beta, ply);
+			}
+
+			return evaluator.evaluate(playerOnMove, judge);
+		}
+
+		int valuation, originalAlfa = alfa, bestMove = NO_MOVE, tableMove = NO_MOVE;
+		long hash = 0, tablebaseScoresBefore = tablebaseScores;
+
+		// Před generováním tahů se podíváme do transpoziční tabulky.
+		if (table != null)
+		{
+			hash = judge.getBoard().getHash(playerOnMove);
+
+			long entry = table.probe(hash);
+
+			statistics.tableProbes++;
+
+			if (entry != 0)
+			{
+				statistics.tableHits++;
+			}
+
+			// Nejlepší tah záznamu použijeme pro řazení i při nedostatečné hloubce.
+			if (entry != 0 && TranspositionTable.getMoveFrom(entry) != TranspositionTable.NO_SQUARE)
+			{
+				tableMove = Judge.packMove(TranspositionTable.getMoveFrom(entry), TranspositionTable.getMoveTo(entry));
+			}
+
+			if (entry != 0 && TranspositionTable.getDepth(entry) >= deep)
+			{
+				int score = TranspositionTable.getScore(entry);
+				int bound = TranspositionTable.getBound(entry);
+
+				if (bound == TranspositionTable.EXACT)
+				{
+					statistics.tableCutoffs++;
+
+					return Math.max(alfa, Math.min(beta, score));
+				}
+
+				if (bound == TranspositionTable.LOWER && score >= beta)
+				{
+					statistics.tableCutoffs++;
+
+					return beta;
+				}
+
+				if (bound == TranspositionTable.UPPER && score <= alfa)
+				{
+					statistics.tableCutoffs++;
+
+					return alfa;
+				}
+			}
+		}
+
+		// Vygenerujeme všechny možné tahy do bufferu dané úrovně.
+		int[] moves = getMoveBuffer(ply);
+		int[] scores = getScoreBuffer(ply);
+		int movesCount = judge.generateMoves(playerOnMove, moves);
+
+		scoreMoves(playerOnMove, moves, scores, movesCount, tableMove, ply);
+
+		for (int i = 0; i < movesCount; i++)
+		{
+			// Na pozici i přesuneme nejlépe seřazený ze zbývajících tahů.
+			pickMove(moves, scores, i, movesCount);
+
+			int move = moves[i];
+
+			// Zahrajeme tah.
+			judge.playMove(move, playerOnMove);
+
+			// První tah prohledáme s plným oknem, ostatní nejprve s nulovým.
+			if (i == 0)
+			{
+				valuation = searchChild(playerOnMove, deep, alfa, beta, ply);
+			}
+			else
+			{
+				valuation = searchChild(playerOnMove, deep, alfa, alfa + 1, ply);
+
+				// Tah překonal alfu - prohledáme ho znovu s plným oknem.
+				if (valuation > alfa && valuation < beta)
+				{
+					valuation = searchChild(playerOnMove, deep, alfa, beta, ply);
+				}
+			}
+
+			// Vrátíme tah.
+			judge.undoMove();
+
+			// Pokud je ohodnocení větší, než alfa, nahradíme ji a porovnáme s betou.
+			if (valuation > alfa)
+			{
+				alfa		= valuation;
+				bestMove	= move;
+
+				updatePrincipalVariation(ply, move);
+
+				// Ořezání.
+				if (valuation >= beta)
+				{
+					statistics.betaCutoffs++;
+
+					if (i == 0)
+					{
+						statistics.firstMoveCutoffs++;
+					}
+
+					if (scores[i] < ORDER_CAPTURE)
+					{
+						updateQuietCutoff(move, deep, ply);
+					}
+
+					storeResult(hash, deep, TranspositionTable.LOWER, beta, bestMove, tablebaseScores != tablebaseScoresBefore);
+					return beta;
+				}
+			}
+		}
+
+		storeResult(hash, deep, alfa > originalAlfa ? TranspositionTable.EXACT : TranspositionTable.UPPER, alfa, bestMove, tablebaseScores != tablebaseScoresBefore);
+
+		return alfa;
+	}
+
+
+	/**
+	 * Vrátí ohodnocení pozice podle výsledku z tablebáze.
+	 *
+	 * Výhra i prohra se posune o (omezené) ohodnocení desky, aby vítěz postupoval
+	 * k lepším pozicím. Výhra, kterou nelze dokončit do maximálního počtu tahů bez
+	 * zajmutí, je remízou (viz EndgameTablebase.probe).
+	 *
+	 * @param playerOnMove
+	 * @param result
+	 * @return
+	 */
+	private int getTablebaseScore(int playerOnMove, int result)
+	{
+		if (result == EndgameTablebase.DRAW)
+		{
+			return 0;
+		}
+
+		int valuation = Math.max(-TABLEBASE_RANGE, Math.min(TABLEBASE_RANGE, evaluator.evaluate(playerOnMove, judge)));
+
+		return (result == EndgameTablebase.WIN ? TABLEBASE_WIN : -TABLEBASE_WIN) + valuation;
+	}
+
+
+	/**
+	 * Klidové prohledávání.
+	 *
+	 * Hráč na tahu může zůstat u ohodnocení desky, nebo zahrát zajímající tah či únik
+	 * krále do rohu. Po vyčerpání rozpočtu uzlů se vrací pouze ohodnocení desky.
+	 *
+	 * @param playerOnMove
+	 * @param alfa
+	 * @param beta
+	 * @param ply
+	 * @return
+	 * @throws JudgeException
+	 * @throws SearchAbortedException
+	 */
+	private int quiesce(int playerOnMove, int alfa, int beta, int ply) throws JudgeException, SearchAbortedException
+	{
+		countNode();
+
+		statistics.quiescenceNodes++;
+		quiescenceNodesLeft--;
+		principalVariationLength[ply] = ply;
+
+		// Pokud hráč na tahu zvítězil, vrátíme MAX.
+		if (judge.isPlayerWinner(playerOnMove))
+		{
+			return ComputerPlayer.MAX;
+		}
+
+		// Pokud hráč na tahu prohrál, vrátíme -MAX.
+		if (judge.isPlayerLooser(playerOnMove))
+		{
+			return -ComputerPlayer.MAX;
+		}
+
+		int standPat = evaluator.evaluate(playerOnMove, judge);
+
+		if (ply >= MAX_PLY || quiescenceNodesLeft <= 0)
+		{
+			return standPat;
+		}
+
+		// Hráč nemusí nic zajímat - ohodnocení desky je dolní mez.
+		if (standPat >= beta)
+		{
+			return beta;
+		}
+
+		if (standPat > alfa)
+		{
+			alfa = standPat;
+		}
+
+		// Ponecháme pouze úniky krále a zajímající tahy.
+		int[] moves = getMoveBuffer(ply);
+		int[] scores = getScoreBuffer(ply);
+		int generatedCount = judge.generateMoves(playerOnMove, moves), movesCount = 0, move, valuation;
+
+		for (int i = 0; i < generatedCount; i++)
+		{
+			move = moves[i];
+
+			if (judge.isKingEscapeMove(move))
+			{
+				scores[movesCount]	= ORDER_ESCAPE;
+				moves[movesCount++]	= move;
+			}
+			else if (judge.isCapturingMove(move, playerOnMove))
+			{
+				scores[movesCount]	= ORDER_CAPTURE;
+				moves[movesCount++]	= move;
+			}
+		}
+
+		for (int i = 0; i < movesCount; i++)
+		{
+			pickMove(moves, scores, i, movesCount);
+
+			move = moves[i];
+
+			judge.playMove(move, playerOnMove);
+
+			valuation = -quiesce(judge.getOtherPlayer(playerOnMove), ComputerPlayer.further(-beta), ComputerPlayer.further(-alfa), ply + 1);
+			valuation = ComputerPlayer.closer(valuation);
+
+			judge.undoMove();
+
+			if (valuation > alfa)
+			{
+				alfa = valuation;
+
+				updatePrincipalVariation(ply, move);
+
+				if (valuation >= beta)
+				{
+					return beta;
+				}
+			}
+		}
+
+		return alfa;
+	}
+
+
+	/**
+	 * Prohledá pozici po zahraném tahu a vrátí její ohodnocení z pohledu hráče na tahu.
+	 *
+	 * @param playerOnMove	hráč, který tah zahrál
+	 * @param deep			hloubka uzlu, ze kterého byl tah zahrán
+	 * @param alfa
+	 * @param beta
+	 * @param ply			vzdálenost uzlu, ze kterého byl tah zahrán
+	 * @return
+	 * @throws JudgeException
+	 * @throws SearchAbortedException
+	 */
+	private int searchChild(int playerOnMove, int deep, int alfa, int beta, int ply) throws JudgeException, SearchAbortedException
+	{
+		int valuation = -alfabeta(judge.getOtherPlayer(playerOnMove), deep - 1, ComputerPlayer.further(-beta), ComputerPlayer.further(-alfa), ply + 1);
+
+		return ComputerPlayer.closer(valuation);
+	}
+
+
+	/**
+	 * Nastaví hlavní variantu úrovně na tah a variantu následující úrovně.
+	 *
+	 * @param ply
+	 * @param move
+	 */
+	private void updatePrincipalVariation(int ply, int move)
+	{
+		int length = Math.max(principalVariationLength[ply + 1], ply + 1);
+
+		principalVariation[ply][ply] = move;
+
+		for (int i = ply + 1; i < length; i++)
+		{
+			principalVariation[ply][i] = principalVariation[ply + 1][i];
+		}
+
+		principalVariationLength[ply] = length;
+	}
+
+
+	/**
+	 * Vrátí buffer pro generování tahů dané úrovně.
+	 *
+	 * @param ply
+	 * @return
+	 */
+	private int[] getMoveBuffer(int ply)
+	{
+		if (moveBuffers[ply] == null)
+		{
+			moveBuffers[ply] = new int[Judge.MAX_MOVES_COUNT];
+		}
+
+		return moveBuffers[ply];
+	}
+
+
+	/**
+	 * Vrátí buffer pro skóre řazení tahů dané úrovně.
+	 *
+	 * @param ply
+	 * @return
+	 */
+	private int[] getScoreBuffer(int ply)
+	{
+		if (scoreBuffers[ply] == null)
+		{
+			scoreBuffers[ply] = new int[Judge.MAX_MOVES_COUNT];
+		}
+
+		return scoreBuffers[ply];
+	}
+
+
+	/**
+	 * Ohodnotí tahy pro řazení (vyšší skóre = dříve prohledávaný tah).
+	 *
+	 * @param playerOnMove
+	 * @param moves
+	 * @param scores
+	 * @param movesCount
+	 * @param tableMove		tah z transpoziční tabulky (nebo NO_MOVE)
+	 * @param ply
+	 */
+	private void scoreMoves(int playerOnMove, int[] moves, int[] scores, int movesCount, int tableMove, int ply)
+	{
+		int move;
+
+		for (int i = 0; i < movesCount; i++)
+		{
+			move = moves[i];
+
+			if (judge.isKingEscapeMove(move))
+			{
+				scores[i] = ORDER_ESCAPE;
+			}
+			else if (judge.isCapturingMove(move, playerOnMove))
+			{
+				scores[i] = ORDER_CAPTURE;
+			}
+			else if (move == tableMove)
+			{
+				scores[i] = ORDER_TABLE_MOVE;
+			}
+			else if (move == killers[ply][0])
+			{
+				scores[i] = ORDER_KILLER + 1;
+			}
+			else if (move == killers[ply][1])
+			{
+				scores[i] = ORDER_KILLER;
+			}
+			else
+			{
+				scores[i] = history[Judge.getMoveFrom(move)][Judge.getMoveTo(move)];
+			}
+		}
+	}
+
+
+	/**
+	 * Přesune tah s nejvyšším skóre ze zbývajících (od indexu) na daný index.
+	 *
+	 * Při shodě skóre zůstává původní pořadí generování.
+	 *
+	 * @param moves
+	 * @param scores
+	 * @param index
+	 * @param movesCount
+	 */
+	private static void pickMove(int[] moves, int[] scores, int index, int movesCount)
+	{
+		int best = index, j;
+
+		for (int i = index + 1; i < movesCount; i++)
+		{
+			if (scores[i] > scores[best])
+			{
+				best = i;
+			}
+		}
+
+		// Posuneme přeskočené tahy o jedno dál, aby zůstalo pořadí stabilní.
+		if (best != index)
+		{
+			int bestMove = moves[best], bestScore = scores[best];
+
+			for (j = best; j > index; j--)
+			{
+				moves[j]	= moves[j - 1];
+				scores[j]	= scores[j - 1];
+			}
+
+			moves[index]	= bestMove;
+			scores[index]	= bestScore;
+		}
+	}
+
+
+	/**
+	 * Zapamatuje si tichý tah (bez zajetí), který způsobil ořezání - killer tahy a historie.
+	 *
+	 * @param move
+	 * @param deep
+	 * @param ply
+	 */
+	private void updateQuietCutoff(int move, int deep, int ply)
+	{
+		if (killers[ply][0] != move)
+		{
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+
+		int from = Judge.getMoveFrom(move), to = Judge.getMoveTo(move);
+
+		history[from][to] += deep * deep;
+
+		// Tabulku zmenšíme, aby historie nedosáhla skóre killer tahů.
+		if (history[from][to] > HISTORY_MAX)
+		{
+			for (int[] row : history)
+			{
+				for (int i = 0; i < row.length; i++)
+				{
+					row[i] /= 2;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Uloží výsledek prohledávání uzlu do transpoziční tabulky.
+	 *
+	 * Ohodnocení, na kterém se podílela tablebáze, se neukládá - závisí na počtu tahů
+	 * bez zajmutí, který klíč záznamu neobsahuje.
+	 *
+	 * @param hash
+	 * @param deep
+	 * @param bound
+	 * @param valuation
+	 * @param bestMove	nejlepší (zabalený) tah uzlu (nebo NO_MOVE)
+	 * @param tablebaseScored	ohodnocení ovlivnila tablebáze
+	 */
+	private void storeResult(long hash, int deep, int bound, int valuation, int bestMove, boolean tablebaseScored)
+	{
+		if (table == null || tablebaseScored)
+		{
+			return;
+		}
+
+		if (bestMove == NO_MOVE)
+		{
+			table.store(hash, deep, bound, valuation, TranspositionTable.NO_SQUARE, TranspositionTable.NO_SQUARE);
+		}
+		else
+		{
+			table.store(hash, deep, bound, valuation, Judge.getMoveFrom(bestMove), Judge.getMoveTo(bestMove));
+		}
+	}
+
+
+	/**
+	 * Vrátí všechny možné (zabalené) tahy hráče v kořeni prohledávání.
+	 *
+	 * @param playerOnMove
+	 * @return
+	 * @throws PlayerException pokud hráč nemá žádné tahy.
+	 */
+	public int[] getRootMoves(int playerOnMove) throws PlayerException
+	{
+		int[] moves = getMoveBuffer(0);
+		int movesCount = judge.generateMoves(playerOnMove, moves);
+
+		// Pokud hráč nemá žádné tahy, vyhodíme výjimku.
+		if (movesCount == 0)
+		{
+			throw new PlayerException("Player has no moves to do. Game Over");
+		}
+
+		int tableMove = NO_MOVE;
+
+		if (table != null)
+		{
+			long entry = table.probe(judge.getBoard().getHash(playerOnMove));
+
+			if (entry != 0 && TranspositionTable.getMoveFrom(entry) != TranspositionTable.NO_SQUARE)
+			{
+				tableMove = Judge.packMove(TranspositionTable.getMoveFrom(entry), TranspositionTable.getMoveTo(entry));
+			}
+		}
+
+		// Tahy seřadíme stejně jako ve vnitřních uzlech.
+		int[] scores = getScoreBuffer(0);
+
+		scoreMoves(playerOnMove, moves, scores, movesCount, tableMove, 0);
+
+		for (int i = 0; i < movesCount; i++)
+		{
+			pickMove(moves, scores, i, movesCount);
+		}
+
+		return Arrays.copyOf(moves, movesCount);
+	}
+
+
+	/**
+	 * Vrátí ohodnocení (zabaleného) tahu z kořene prohledávání (do dané hloubky).
+	 *
+	 * Po přerušení prohledávání (SearchAbortedException) zůstává tah zahraný
+	 * a instance se již nesmí dále používat.
+	 *
+	 * @param playerOnMove
+	 * @param move
+	 * @param deep
+	 * @param alfa
+	 * @return
+	 * @throws PlayerException
+	 * @throws SearchAbortedException
+	 */
+	public int searchRootMove(int playerOnMove, int move, int deep, int alfa) throws PlayerException, SearchAbortedException
+	{
+		return searchRootMove(playerOnMove, move, deep, alfa, ComputerPlayer.MAX);
+	}
+
+
+	/**
+	 * Vrátí ohodnocení (zabaleného) tahu z kořene prohledávání v okně (alfa, beta).
+	 *
+	 * @param playerOnMove
+	 * @param move
+	 * @param deep
+	 * @param alfa
+	 * @param beta
+	 * @return
+	 * @throws PlayerException
+	 * @throws SearchAbortedException
+	 */
+	private int searchRootMove(int playerOnMove, int move, int deep, int alfa, int beta) throws PlayerException, SearchAbortedException
+	{
+		int valuation;
+
+		try
+		{
+			// Zahrajeme tah.
+			judge.playMove(move, playerOnMove);
+
+			// Zjistíme ohodnocení konkrétního tahu (do hloubky).
+			valuation = -alfabeta(judge.getOtherPlayer(playerOnMove), deep, ComputerPlayer.further(-beta), ComputerPlayer.further(-alfa), 1);
+
+			// Vrátíme tah.
+			judge.undoMove();
+		}
+		catch (JudgeException ex)
+		{
+			throw new PlayerException("Searching for the best move failed: " + ex.getMessage(), ex);
+		}
+
+		return ComputerPlayer.closer(valuation);
+	}
+
+
+	/**
+	 * Zabalí ignorovaný tah (nebo vrátí NO_MOVE).
+	 *
+	 * @param ignoredMove
+	 * @return
+	 */
+	private static int packIgnoredMove(int[][] ignoredMove)
+	{
+		if (ignoredMove == null)
+		{
+			return NO_MOVE;
+		}
+
+		return Judge.packMove(
+				PlayBoard.getSquareIndex(ignoredMove[0][0], ignoredMove[0][1]),
+				PlayBoard.getSquareIndex(ignoredMove[1][0], ignoredMove[1][1]));
+	}
+
+
+	/**
+	 * Vrátí nejlepší možný tah pro danného hráče (prohledání do dané hloubky).
+	 *
+	 * Pokud je k dispozici ohodnocení z předchozího prohledávání (iterativní prohlubování),
+	 * prohledává se nejprve v aspiračním okně kolem něj. Při neúspěchu se okno na dané
+	 * straně otevře a kořen se prohledá znovu.
+	 *
+	 * @param playerOnMove
+	 * @param deep
+	 * @param ignoredMove
+	 * @param ignoredMovesDepth
+	 * @return
+	 * @throws PlayerException
+	 * @throws SearchAbortedException
+	 */
+	public int[][] getBestMove(int playerOnMove, int deep, int[][] ignoredMove, int ignoredMovesDepth) throws PlayerException, SearchAbortedException
+	{
+		int[] moves = getRootMoves(playerOnMove);
+		int alfa = -ComputerPlayer.MAX, beta = ComputerPlayer.MAX;
+
+		// Aspirační okno nepoužijeme při ignorování nejlepších tahů a u jisté výhry/prohry.
+		if (hasLastScore && ignoredMovesDepth <= 0 && Math.abs(lastScore) <= ComputerPlayer.LOT)
+		{
+			alfa = Math.max(-ComputerPlayer.MAX, lastScore - ASPIRATION_WINDOW);
+			beta = Math.min(ComputerPlayer.MAX, lastScore + ASPIRATION_WINDOW);
+		}
+
+		while (true)
+		{
+			int score = searchRoot(playerOnMove, moves, deep, ignoredMove, ignoredMovesDepth, alfa, beta);
+
+			if (score <= alfa && alfa > -ComputerPlayer.MAX)
+			{
+				alfa = -ComputerPlayer.MAX;
+			}
+			else if (score >= beta && beta < ComputerPlayer.MAX)
+			{
+				beta = ComputerPlayer.MAX;
+			}
+			else
+			{
+				lastScore		= score;
+				hasLastScore	= true;
+
+				return Judge.unpackMove(principalVariation[0][0]);
+			}
+		}
+	}
+
+
+	/**
+	 * Prohledá tahy z kořene v okně (alfa, beta).
+	 *
+	 * Nejlepší tah (a hlavní varianta) se uloží do tabulky hlavních variant.
+	 *
+	 * @param playerOnMove
+	 * @param moves
+	 * @param deep
+	 * @param ignoredMove
+	 * @param ignoredMovesDepth
+	 * @param alfa
+	 * @param beta
+	 * @return ohodnocení kořene
+	 * @throws PlayerException
+	 * @throws SearchAbortedException
+	 */
+	private int searchRoot(int playerOnMove, int[] moves, int deep, int[][] ignoredMove, int ignoredMovesDepth, int alfa, int beta) throws PlayerException, SearchAbortedException
+	{
+		int valuation, move;
+		int ignored = packIgnoredMove(ignoredMove);
+		boolean first = true;
+
+		// Jako nejlepší tah nastavíme první.
+		principalVariation[0][0]	= moves[0];
+		principalVariationLength[0]	= 1;
+
+		for (int i = 0; i < moves.length; i++)
+		{
+			move = moves[(i + rootOffset) % moves.length];
+
+			// Přeskočíme ignorovaný tah.
+			if (move == ignored)
+			{
+				continue;
+			}
+
+			// První tah prohledáme s plným oknem, ostatní nejprve s nulovým.
+			if (first)
+			{
+				valuation	= searchRootMove(playerOnMove, move, deep, alfa, beta);
+				first		= false;
+			}
+			else
+			{
+				valuation = searchRootMove(playerOnMove, move, deep, alfa, alfa + 1);
+
+				if (valuation > alfa && valuation < beta)
+				{
+					valuation = searchRootMove(playerOnMove, move, deep, alfa, beta);
+				}
+			}
+
+			// Pokud je ohodnocení větší, než alfa, nahradíme ji a nastavíme jako tah, jako nejlepší.
+			if (valuation > alfa)
+			{
+				if (ignoredMovesDepth > 0)
+				{
+					ignoredMovesDepth--;
+					continue;
+				}
+
+				alfa = valuation;
+				updatePrincipalVariation(0, move);
+
+				// Hodnota mimo aspirační okno nebo jistá výhra za jeden tah - nebudeme pokračovat dál.
+				if (valuation >= beta || valuation == ComputerPlayer.MAX - 1)
+				{
+					break;
+				}
+			}
+		}
+
+		return alfa;
+	}
+
+
+	/**
+	 * Vrátí nejlepší možný tah paralelním prohledáním kořene.
+	 *
+	 * Tahy z kořene si rozebírají pracovní vlákna (každé nad vlastní kopií rozhodčího)
+	 * a sdílí mezi sebou alfu. Tah se prohledává s oknem o jedna nižším než sdílená alfa,
+	 * takže tahy se stejnou hodnotou jako dosavadní nejlepší mají přesné ohodnocení
+	 * a ze shodných se vybere první v pořadí - výsledek je tedy stejný jako
+	 * u sériového prohledávání (bez transpoziční tabulky, která výsledky
+	 * ovlivňuje podle toho, co v ní zrovna je).
+	 *
+	 * @param judge
+	 * @param table			transpoziční tabulka (nebo null)
+	 * @param evaluator		hodnotitel pozic
+	 * @param tablebase		tablebáze koncovek (nebo null)
+	 * @param playerOnMove
+	 * @param deep
+	 * @param ignoredMove
+	 * @param threads		počet pracovních vláken
+	 * @param deadline		čas (ms), kdy musí prohledávání skončit
+	 * @param cancelled		sdílený příznak zrušení hledání (nebo null)
+	 * @param statistics	statistiky, ke kterým se přičtou statistiky pracovních vláken (nebo null)
+	 * @return
+	 * @throws PlayerException
+	 * @throws SearchAbortedException
+	 */
+	public static int[][] getBestMoveParallel(final Judge judge, final TranspositionTable table, final Evaluator evaluator, final EndgameTablebase tablebase, final int playerOnMove, final int deep, int[][] ignoredMove, int threads, final long deadline, final AtomicBoolean cancelled, final SearchStatistics statistics) throws PlayerException, SearchAbortedException
+	{
+		final int[] moves					= new SearchEngine(judge, null, evaluator).getRootMoves(playerOnMove);
+		final int ignored					= packIgnoredMove(ignoredMove);
+		final int[] valuations				= new int[moves.length];
+		final boolean[] exact				= new boolean[moves.length];
+		final AtomicInteger sharedAlfa		= new AtomicInteger(-ComputerPlayer.MAX);
+		final AtomicInteger nextMove		= new AtomicInteger(0);
+		final AtomicBoolean winFound		= new AtomicBoolean(false);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Void>> futures = new ArrayList<>();
+
+		try
+		{
+			for (int i = 0; i < threads; i++)
+			{
+				futures.add(executor.submit(new Callable<Void>()
+				{
+					@Override
+					public Void call() throws PlayerException, SearchAbortedException
+					{
+						SearchEngine engine = new SearchEngine(judge, table, evaluator);
+						engine.setTablebase(tablebase);
+						engine.setDeadline(deadline);
+						engine.setCancelled(cancelled);
+
+						try
+						{
+							searchMoves(engine);
+						}
+						finally
+						{
+							if (statistics != null)
+							{
+								synchronized (statistics)
+								{
+									statistics.add(engine.getStatistics());
+								}
+							}
+						}
+
+						return null;
+					}
+
+
+					/**
+					 * Rozebírá tahy z kořene, dokud nějaké zbývají.
+					 */
+					private void searchMoves(SearchEngine engine) throws PlayerException, SearchAbortedException
+					{
+						int index, alfa, valuation;
+
+						// Po nalezení výhry v jednom tahu už další tahy nerozebíráme (ty předchozí jsou rozebrané).
+						while (!winFound.get() && (index = nextMove.getAndIncrement()) < moves.length)
+						{
+							if (moves[index] == ignored)
+							{
+								continue;
+							}
+
+							alfa		= Math.max(-ComputerPlayer.MAX, sharedAlfa.get() - 1);
+							valuation	= engine.searchRootMove(playerOnMove, moves[index], deep, alfa);
+
+							// Hodnota nad oknem je přesná.
+							if (valuation > alfa)
+							{
+								valuations[index]	= valuation;
+								exact[index]		= true;
+
+								sharedAlfa.accumulateAndGet(valuation, Math::max);
+
+								if (valuation == ComputerPlayer.MAX - 1)
+								{
+									winFound.set(true);
+								}
+							}
+						}
+					}
+				}));
+			}
+
+			for (Future<Void> future : futures)
+			{
+				future.get();
+			}
+		}
+		catch (ExecutionException ex)
+		{
+			if (ex.getCause() instanceof SearchAbortedException)
+			{
+				throw (SearchAbortedException) ex.getCause();
+			}
+
+			if (ex.getCause() instanceof PlayerException)
+			{
+				throw (PlayerException) ex.getCause();
+			}
+
+			throw new PlayerException("Searching for the best move failed: " + ex.getCause(), ex);
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new SearchAbortedException("Search was interrupted.", ex);
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		// Vybereme první tah s nejvyšším přesným ohodnocením (stejně jako sériové prohledávání).
+		int alfa = -ComputerPlayer.MAX;
+		int bestMove = moves[0];
+
+		for (int i = 0; i < moves.length; i++)
+		{
+			if (exact[i] && valuations[i] > alfa)
+			{
+				alfa		= valuations[i];
+				bestMove	= moves[i];
+			}
+		}
+
+		return Judge.unpackMove(bestMove);
+	}
+}
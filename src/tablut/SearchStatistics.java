@@ -0,0 +1,364 @@
+package tablut;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Statistiky prohledávání.
+ *
+ * Čítače zvyšuje přímo prohledávání (jedna instance na jedno vlákno, bez synchronizace),
+ * takže je lze nechat zapnuté i při běžné hře. Statistiky více vláken se sčítají
+ * metodou add, časy a uzly dokončených iterací zaznamenává ComputerPlayer.
+ *
+ * @author Ondřej Tom
+ */
+public class SearchStatistics
+{
+	/**
+	 * Počet navštívených uzlů (včetně klidového prohledávání).
+	 */
+	long nodes = 0;
+
+
+	/**
+	 * Počet uzlů klidového prohledávání.
+	 */
+	long quiescenceNodes = 0;
+
+
+	/**
+	 * Počet dotazů do transpoziční tabulky.
+	 */
+	long tableProbes = 0;
+
+
+	/**
+	 * Počet nalezených záznamů v transpoziční tabulce.
+	 */
+	long tableHits = 0;
+
+
+	/**
+	 * Počet uzlů ukončených hodnotou z transpoziční tabulky.
+	 */
+	long tableCutoffs = 0;
+
+
+	/**
+	 * Počet pozic ohodnocených tablebází koncovek.
+	 */
+	long tablebaseHits = 0;
+
+
+	/**
+	 * Počet ořezání (beta) v alfa-beta uzlech.
+	 */
+	long betaCutoffs = 0;
+
+
+	/**
+	 * Počet ořezání hned prvním tahem uzlu.
+	 */
+	long firstMoveCutoffs = 0;
+
+
+	/**
+	 * Počet uzlů po dokončení jednotlivých hloubek (kumulativně).
+	 */
+	private long[] depthNodes = new long[0];
+
+
+	/**
+	 * Čas od začátku hledání po dokončení jednotlivých hloubek (ms).
+	 */
+	private long[] depthTimes = new long[0];
+
+
+	/**
+	 * Celková doba hledání (ms).
+	 */
+	private long time = 0;
+
+
+	/**
+	 * Přičte statistiky jiného vlákna (bez časů hloubek).
+	 *
+	 * @param other
+	 */
+	public void add(SearchStatistics other)
+	{
+		nodes				+= other.nodes;
+		quiescenceNodes		+= other.quiescenceNodes;
+		tableProbes			+= other.tableProbes;
+		tableHits			+= other.tableHits;
+		tableCutoffs		+= other.tableCutoffs;
+		tablebaseHits		+= other.tablebaseHits;
+		betaCutoffs			+= other.betaCutoffs;
+		firstMoveCutoffs	+= other.firstMoveCutoffs;
+	}
+
+
+	/**
+	 * Vynuluje čítače (časy hloubek zůstávají).
+	 */
+	public void reset()
+	{
+		nodes				= 0;
+		quiescenceNodes		= 0;
+		tableProbes			= 0;
+		tableHits			= 0;
+		tableCutoffs		= 0;
+		tablebaseHits		= 0;
+		betaCutoffs			= 0;
+		firstMoveCutoffs	= 0;
+	}
+
+
+	/**
+	 * Zaznamená dokončenou hloubku.
+	 *
+	 * @param depth
+	 * @param nodes	počet uzlů od začátku hledání
+	 * @param time	čas od začátku hledání (ms)
+	 */
+	public void recordDepth(int depth, long nodes, long time)
+	{
+		if (depth >= depthNodes.length)
+		{
+			depthNodes = Arrays.copyOf(depthNodes, depth + 1);
+			depthTimes = Arrays.copyOf(depthTimes, depth + 1);
+		}
+
+		depthNodes[depth] = nodes;
+		depthTimes[depth] = time;
+
+		this.time = time;
+	}
+
+
+	/**
+	 * Nastaví celkovou dobu hledání (včetně nedokončené iterace).
+	 *
+	 * @param time	ms
+	 */
+	public void setTime(long time)
+	{
+		this.time = time;
+	}
+
+
+	/**
+	 * Vrátí kopii statistik.
+	 *
+	 * @return
+	 */
+	public SearchStatistics copy()
+	{
+		SearchStatistics copy = new SearchStatistics();
+
+		copy.add(this);
+		copy.depthNodes = depthNodes.clone();
+		copy.depthTimes = depthTimes.clone();
+		copy.time		= time;
+
+		return copy;
+	}
+
+
+	/**
+	 * @return
+	 */
+	public long getNodes()
+	{
+		return nodes;
+	}
+
+
+	/**
+	 * @return
+	 */
+	public long getQuiescenceNodes()
+	{
+		return quiescenceNodes;
+	}
+
+
+	/**
+	 * @return
+	 */
+	public long getTableProbes()
+	{
+		return tableProbes;
+	}
+
+
+	/**
+	 * @return
+	 */
+	public long getTableHits()
+	{
+		return tableHits;
+	}
+
+
+	/**
+	 * @return
+	 */
+	public long getTableCutoffs()
+	{
+		return tableCutoffs;
+	}
+
+
+	/**
+	 * @return
+	 */
+	public long getTablebaseHits()
+	{
+		return tablebaseHits;
+	}
+
+
+	/**
+	 * @return
+	 */
+	public long getBetaCutoffs()
+	{
+		return betaCutoffs;
+	}
+
+
+	/**
+	 * @return
+	 */
+	public long getFirstMoveCutoffs()
+	{
+		return firstMoveCutoffs;
+	}
+
+
+	/**
+	 * Vrátí nejvyšší dokončenou hloubku (nebo -1).
+	 *
+	 * @return
+	 */
+	public int getDepth()
+	{
+		return depthTimes.length - 1;
+	}
+
+
+	/**
+	 * Vrátí čas od začátku hledání po dokončení hloubky (ms).
+	 *
+	 * @param depth
+	 * @return
+	 */
+	public long getDepthTime(int depth)
+	{
+		return depthTimes[depth];
+	}
+
+
+	/**
+	 * Vrátí počet uzlů prohledaných v iteraci dané hloubky.
+	 *
+	 * @param depth
+	 * @return
+	 */
+	public long getDepthNodes(int depth)
+	{
+		return depthNodes[depth] - (depth > 0 ? depthNodes[depth - 1] : 0);
+	}
+
+
+	/**
+	 * Vrátí celkovou dobu hledání (ms).
+	 *
+	 * @return
+	 */
+	public long getTime()
+	{
+		return time;
+	}
+
+
+	/**
+	 * Vrátí počet uzlů za sekundu.
+	 *
+	 * @return
+	 */
+	public long getNodesPerSecond()
+	{
+		return nodes * 1000 / Math.max(1, getTime());
+	}
+
+
+	/**
+	 * Vrátí podíl nalezených záznamů v transpoziční tabulce.
+	 *
+	 * @return
+	 */
+	public double getTableHitRate()
+	{
+		return tableProbes > 0 ? (double) tableHits / tableProbes : 0;
+	}
+
+
+	/**
+	 * Vrátí podíl ořezání hned prvním tahem (měřítko kvality řazení tahů).
+	 *
+	 * @return
+	 */
+	public double getFirstMoveCutoffRate()
+	{
+		return betaCutoffs > 0 ? (double) firstMoveCutoffs / betaCutoffs : 0;
+	}
+
+
+	/**
+	 * Vrátí efektivní faktor větvení - d-tou odmocninu počtu uzlů (bez klidového
+	 * prohledávání), kde d je nejvyšší dokončená hloubka.
+	 *
+	 * @return
+	 */
+	public double getBranchingFactor()
+	{
+		int depth = getDepth();
+
+		if (depth < 1)
+		{
+			return 0;
+		}
+
+		return Math.pow(nodes - quiescenceNodes, 1.0 / depth);
+	}
+
+
+	/**
+	 * Vrátí časy dokončení jednotlivých hloubek.
+	 *
+	 * @return
+	 */
+	public String getDepthTimesText()
+	{
+		StringBuilder text = new StringBuilder();
+
+		for (int depth = 0; depth < depthTimes.length; depth++)
+		{
+			text.append(depth > 0 ? ", " : "").append(depth).append(": ").append(depthTimes[depth]).append(" ms");
+		}
+
+		return text.toString();
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return String.format(Locale.ROOT,
+				"depth %d, %d nodes (%d quiescence), %d nps, TT hits %.1f %% (%d cutoffs), tablebase hits %d, first move cutoffs %.1f %%, branching factor %.2f, times [%s]",
+				getDepth(), nodes, quiescenceNodes, getNodesPerSecond(), getTableHitRate() * 100, tableCutoffs,
+				tablebaseHits, getFirstMoveCutoffRate() * 100, getBranchingFactor(), getDepthTimesText());
+	}
+}
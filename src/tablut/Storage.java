@@ -63,7 +63,11 @@ public class Storage
 			Element difficulty = dom.createElement("difficulty");
 			difficulty.setTextContent(Integer.toString(computer.getDifficulty()));
 
+			Element timeLimit = dom.createElement("timeLimit");
+			timeLimit.setTextContent(Integer.toString(computer.getTimeLimit()));
+
 			element.appendChild(difficulty);
+			element.appendChild(timeLimit);
 		}
 		else
 		{
@@ -233,7 +237,15 @@ public class Storage
 		{
 			String difficulty = playerElement.getElementsByTagName("difficulty").item(0).getTextContent().trim();
 
-			return new ComputerPlayer(Integer.parseInt(difficulty));
+			// Časový limit je nepovinný (starší uložené hry jej nemají).
+			Node timeLimit = playerElement.getElementsByTagName("timeLimit").item(0);
+
+			if (timeLimit == null)
+			{
+				return new ComputerPlayer(Integer.parseInt(difficulty));
+			}
+
+			return new ComputerPlayer(Integer.parseInt(difficulty), Integer.parseInt(timeLimit.getTextContent().trim()));
 		}
 	}
 
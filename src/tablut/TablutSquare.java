@@ -14,20 +14,23 @@ public class TablutSquare extends JButton
 {
 	/**
 	 * Hodnota pole ruského hráče.
+	 *
+	 * Hodnoty polí jsou konstanty, takže je překladač vloží přímo do tříd, které je používají,
+	 * a herní logika bez GUI tak nenačítá Swing.
 	 */
-	public static int RUSSIAN = 1;
+	public static final int RUSSIAN = 1;
 
 
 	/**
 	 * Hodnota pole švédského hráče.
 	 */
-	public static int SWEDEN = 2;
+	public static final int SWEDEN = 2;
 
 
 	/**
 	 * Hodnota pole krále.
 	 */
-	public static int KING = 3;
+	public static final int KING = 3;
 
 
 	/**
@@ -0,0 +1,315 @@
+package tablut;
+
+import java.util.Arrays;
+
+/**
+ * Transpoziční tabulka.
+ *
+ * Pamatuje si výsledky prohledávání pozic (podle Zobristova hashe), aby se
+ * stejná pozice dosažená jiným pořadím tahů nemusela prohledávat znovu.
+ *
+ * Tabulka má pevnou velikost (mocnina dvou) a záznamy jsou uloženy v primitivních
+ * polích. Každý záznam tvoří dvojice longů - klíč (hash XOR data) a zabalená data
+ * [skóre 16b | hloubka 8b | typ meze 2b | tah odkud 7b | tah kam 7b | stáří 8b].
+ * Díky XOR klíče lze tabulku číst i zapisovat z více vláken bez zámků - poškozený
+ * záznam se při čtení jednoduše neshoduje s hashem.
+ *
+ * @author Ondřej Tom
+ */
+public class TranspositionTable
+{
+	/**
+	 * Výchozí velikost tabulky (MB).
+	 */
+	public static int DEFAULT_SIZE_MB = 16;
+
+
+	/**
+	 * Typ meze - přesná hodnota.
+	 */
+	public static final int EXACT = 1;
+
+
+	/**
+	 * Typ meze - dolní mez (došlo k ořezání).
+	 */
+	public static final int LOWER = 2;
+
+
+	/**
+	 * Typ meze - horní mez (žádný tah nepřekonal alfu).
+	 */
+	public static final int UPPER = 3;
+
+
+	/**
+	 * Strategie nahrazování - záznam se vždy přepíše.
+	 */
+	public static final int REPLACE_ALWAYS = 0;
+
+
+	/**
+	 * Strategie nahrazování - přednost mají hlubší záznamy z aktuálního prohledávání.
+	 */
+	public static final int REPLACE_DEPTH_PREFERRED = 1;
+
+
+	/**
+	 * Hodnota pro chybějící tah.
+	 */
+	public static final int NO_SQUARE = 127;
+
+
+	/**
+	 * Velikost jednoho záznamu (bajty).
+	 */
+	private static int ENTRY_SIZE = 16;
+
+
+	/**
+	 * Posun skóre, aby bylo uloženo jako nezáporné číslo.
+	 */
+	private static int SCORE_OFFSET = 32768;
+
+
+	/**
+	 * Klíče záznamů (hash XOR data).
+	 */
+	private long[] keys;
+
+
+	/**
+	 * Data záznamů.
+	 */
+	private long[] data;
+
+
+	/**
+	 * Maska pro výpočet indexu záznamu z hashe.
+	 */
+	private int mask;
+
+
+	/**
+	 * Strategie nahrazování záznamů.
+	 */
+	private int replacementPolicy;
+
+
+	/**
+	 * Stáří tabulky - zvyšuje se s každým novým prohledáváním.
+	 */
+	private int age = 0;
+
+
+	/**
+	 * Inicializuje tabulku výchozí velikosti.
+	 */
+	public TranspositionTable()
+	{
+		this(DEFAULT_SIZE_MB, REPLACE_DEPTH_PREFERRED);
+	}
+
+
+	/**
+	 * @param sizeMB				paměťový rozpočet tabulky (MB)
+	 * @param replacementPolicy		strategie nahrazování záznamů
+	 */
+	public TranspositionTable(int sizeMB, int replacementPolicy)
+	{
+		long budget = Math.max(1, sizeMB) * 1024L * 1024L / ENTRY_SIZE;
+		int entries = 1;
+
+		// Počet záznamů zaokrouhlíme dolů na mocninu dvou.
+		while ((long) entries * 2 <= budget && entries < (1 << 30))
+		{
+			entries *= 2;
+		}
+
+		this.keys				= new long[entries];
+		this.data				= new long[entries];
+		this.mask				= entries - 1;
+		this.replacementPolicy	= replacementPolicy;
+	}
+
+
+	/**
+	 * Vrátí počet záznamů tabulky.
+	 *
+	 * @return
+	 */
+	public int getSize()
+	{
+		return keys.length;
+	}
+
+
+	/**
+	 * Označí začátek nového prohledávání (záznamy z předchozích jsou nahraditelné).
+	 */
+	public void newSearch()
+	{
+		age = (age + 1) & 0xFF;
+	}
+
+
+	/**
+	 * Vymaže celou tabulku.
+	 */
+	public void clear()
+	{
+		Arrays.fill(keys, 0);
+		Arrays.fill(data, 0);
+		age = 0;
+	}
+
+
+	/**
+	 * Vrátí index záznamu pro hash.
+	 *
+	 * @param hash
+	 * @return
+	 */
+	private int getIndex(long hash)
+	{
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+
+
+	/**
+	 * Vyhledá záznam v tabulce.
+	 *
+	 * @param hash
+	 * @return zabalená data záznamu, nebo 0 pokud záznam neexistuje
+	 */
+	public long probe(long hash)
+	{
+		int index	= getIndex(hash);
+		long entry	= data[index];
+
+		if (entry != 0 && (keys[index] ^ entry) == hash)
+		{
+			return entry;
+		}
+
+		return 0;
+	}
+
+
+	/**
+	 * Uloží výsledek prohledávání pozice.
+	 *
+	 * @param hash
+	 * @param depth		hloubka prohledávání
+	 * @param bound		typ meze (EXACT, LOWER, UPPER)
+	 * @param score		ohodnocení pozice
+	 * @param from		index pole, z kterého vede nejlepší tah (nebo NO_SQUARE)
+	 * @param to		index pole, na které vede nejlepší tah (nebo NO_SQUARE)
+	 */
+	public void store(long hash, int depth, int bound, int score, int from, int to)
+	{
+		int index	= getIndex(hash);
+		long old	= data[index];
+
+		if (replacementPolicy == REPLACE_DEPTH_PREFERRED && old != 0 && getAge(old) == age)
+		{
+			boolean sameKey = (keys[index] ^ old) == hash;
+
+			// Hlubší záznam z aktuálního prohledávání nepřepisujeme mělčím výsledkem.
+			if (getDepth(old) > depth && !(sameKey && bound == EXACT))
+			{
+				return;
+			}
+
+			// U stejné pozice bez nového tahu ponecháme původní nejlepší tah.
+			if (sameKey && from == NO_SQUARE)
+			{
+				from	= getMoveFrom(old);
+				to		= getMoveTo(old);
+			}
+		}
+
+		long entry =
+				((long) (score + SCORE_OFFSET) & 0xFFFFL) |
+				((long) (depth & 0xFF) << 16) |
+				((long) (bound & 0x3) << 24) |
+				((long) (from & 0x7F) << 26) |
+				((long) (to & 0x7F) << 33) |
+				((long) age << 40);
+
+		data[index] = entry;
+		keys[index] = hash ^ entry;
+	}
+
+
+	/**
+	 * Vrátí skóre ze záznamu.
+	 *
+	 * @param entry
+	 * @return
+	 */
+	public static int getScore(long entry)
+	{
+		return (int) (entry & 0xFFFFL) - SCORE_OFFSET;
+	}
+
+
+	/**
+	 * Vrátí hloubku ze záznamu.
+	 *
+	 * @param entry
+	 * @return
+	 */
+	public static int getDepth(long entry)
+	{
+		return (int) (entry >>> 16) & 0xFF;
+	}
+
+
+	/**
+	 * Vrátí typ meze ze záznamu.
+	 *
+	 * @param entry
+	 * @return
+	 */
+	public static int getBound(long entry)
+	{
+		return (int) (entry >>> 24) & 0x3;
+	}
+
+
+	/**
+	 * Vrátí index pole, z kterého vede nejlepší tah.
+	 *
+	 * @param entry
+	 * @return
+	 */
+	public static int getMoveFrom(long entry)
+	{
+		return (int) (entry >>> 26) & 0x7F;
+	}
+
+
+	/**
+	 * Vrátí index pole, na které vede nejlepší tah.
+	 *
+	 * @param entry
+	 * @return
+	 */
+	public static int getMoveTo(long entry)
+	{
+		return (int) (entry >>> 33) & 0x7F;
+	}
+
+
+	/**
+	 * Vrátí stáří záznamu.
+	 *
+	 * @param entry
+	 * @return
+	 */
+	private static int getAge(long entry)
+	{
+		return (int) (entry >>> 40) & 0xFF;
+	}
+}
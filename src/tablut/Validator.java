@@ -50,6 +50,12 @@ public class Validator
 			{
 				throw new ValidatorException("Difficulty of computer player has to be in interval between 0 and 4.");
 			}
+
+			Element timeLimit = (Element) player.getElementsByTagName("timeLimit").item(0);
+			if (timeLimit != null && Integer.parseInt(timeLimit.getTextContent().trim()) < 0)
+			{
+				throw new ValidatorException("Time limit of computer player can't be negative.");
+			}
 		}
 	}
 
@@ -31,20 +31,36 @@ public class ChangePlayersSettingsEvent extends java.util.EventObject
 	private int playerBDifficultyIndex;
 
 
+	/**
+	 * Časový limit hráče A na jeden tah (ms).
+	 */
+	private int playerATimeLimit;
+
+
+	/**
+	 * Časový limit hráče B na jeden tah (ms).
+	 */
+	private int playerBTimeLimit;
+
+
 	/**
 	 * @param source					Objekt vyvolávající událost.
 	 * @param playerATypeIndex			Typ hráče A.
 	 * @param playerADifficultyIndex	Úroveň hráče A.
 	 * @param playerBTypeIndex			Typ hráče B.
 	 * @param playerBDifficultyIndex	Úroveň hráče B.
+	 * @param playerATimeLimit			Časový limit hráče A na jeden tah (ms), 0 = bez limitu.
+	 * @param playerBTimeLimit			Časový limit hráče B na jeden tah (ms), 0 = bez limitu.
 	 */
-	public ChangePlayersSettingsEvent(Object source, int playerATypeIndex, int playerADifficultyIndex, int playerBTypeIndex, int playerBDifficultyIndex)
+	public ChangePlayersSettingsEvent(Object source, int playerATypeIndex, int playerADifficultyIndex, int playerBTypeIndex, int playerBDifficultyIndex, int playerATimeLimit, int playerBTimeLimit)
 	{
 		super(source);
 		this.playerATypeIndex		= playerATypeIndex;
 		this.playerADifficultyIndex = playerADifficultyIndex;
 		this.playerBTypeIndex		= playerBTypeIndex;
 		this.playerBDifficultyIndex = playerBDifficultyIndex;
+		this.playerATimeLimit		= playerATimeLimit;
+		this.playerBTimeLimit		= playerBTimeLimit;
 	}
 
 
@@ -90,4 +106,26 @@ public class ChangePlayersSettingsEvent extends java.util.EventObject
 	{
 		return playerBDifficultyIndex;
 	}
+
+
+	/**
+	 * Vrátí časový limit hráče A na jeden tah (ms).
+	 *
+	 * @return
+	 */
+	public int getPlayerATimeLimit()
+	{
+		return playerATimeLimit;
+	}
+
+
+	/**
+	 * Vrátí časový limit hráče B na jeden tah (ms).
+	 *
+	 * @return
+	 */
+	public int getPlayerBTimeLimit()
+	{
+		return playerBTimeLimit;
+	}
 }
@@ -0,0 +1,35 @@
+package tablut.events;
+
+/**
+ * Událost se zprávou pro hráče (vítěz, konec hry, chyba).
+ *
+ * @author Ondřej Tom
+ */
+public class GameMessageEvent extends java.util.EventObject
+{
+	/**
+	 * Text zprávy.
+	 */
+	private String message;
+
+
+	/**
+	 * @param source
+	 * @param message
+	 */
+	public GameMessageEvent(Object source, String message)
+	{
+		super(source);
+
+		this.message = message;
+	}
+
+
+	/**
+	 * @return
+	 */
+	public String getMessage()
+	{
+		return message;
+	}
+}
@@ -0,0 +1,104 @@
+package tablut.events;
+
+import tablut.SearchStatistics;
+
+/**
+ * Událost průběhu hledání nejlepšího tahu (po každé dokončené iteraci).
+ *
+ * @author Ondřej Tom
+ */
+public class SearchProgressEvent extends java.util.EventObject
+{
+	/**
+	 * Dokončená hloubka.
+	 */
+	private int depth;
+
+
+	/**
+	 * Statistiky hledání (všech vláken) po dokončené iteraci.
+	 */
+	private SearchStatistics statistics;
+
+
+	/**
+	 * Nejlepší tah dokončené iterace.
+	 */
+	private int[][] bestMove;
+
+
+	/**
+	 * @param source		Hledající počítačový hráč.
+	 * @param depth			Dokončená hloubka.
+	 * @param statistics	Statistiky hledání po dokončené iteraci.
+	 * @param bestMove		Nejlepší tah dokončené iterace.
+	 */
+	public SearchProgressEvent(Object source, int depth, SearchStatistics statistics, int[][] bestMove)
+	{
+		super(source);
+
+		this.depth		= depth;
+		this.statistics	= statistics;
+		this.bestMove	= bestMove;
+	}
+
+
+	/**
+	 * @return
+	 */
+	public int getDepth()
+	{
+		return depth;
+	}
+
+
+	/**
+	 * @return
+	 */
+	public SearchStatistics getStatistics()
+	{
+		return statistics;
+	}
+
+
+	/**
+	 * Vrátí počet navštívených uzlů (všech vláken).
+	 *
+	 * @return
+	 */
+	public long getNodes()
+	{
+		return statistics.getNodes();
+	}
+
+
+	/**
+	 * Vrátí dobu hledání (ms).
+	 *
+	 * @return
+	 */
+	public long getTime()
+	{
+		return statistics.getTime();
+	}
+
+
+	/**
+	 * Vrátí počet uzlů za sekundu.
+	 *
+	 * @return
+	 */
+	public long getNodesPerSecond()
+	{
+		return statistics.getNodesPerSecond();
+	}
+
+
+	/**
+	 * @return
+	 */
+	public int[][] getBestMove()
+	{
+		return bestMove;
+	}
+}
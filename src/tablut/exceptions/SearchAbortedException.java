@@ -0,0 +1,24 @@
+package tablut.exceptions;
+
+/**
+ * @author Ondřej Tom
+ */
+public class SearchAbortedException extends Exception
+{
+	public SearchAbortedException()
+	{
+		super();
+	}
+
+
+	public SearchAbortedException(String msg)
+	{
+		super(msg);
+	}
+
+
+	public SearchAbortedException(String msg, Throwable e)
+	{
+		super(msg, e);
+	}
+}
@@ -6,6 +6,7 @@ import tablut.listeners.ChangeGUIListener;
 import tablut.events.LoadGameEvent;
 import tablut.events.ChangePlayersSettingsEvent;
 import tablut.events.ChangeGUIEvent;
+import tablut.events.SearchProgressEvent;
 import tablut.exceptions.StorageException;
 import tablut.exceptions.PlayerException;
 import java.awt.*;
@@ -14,30 +15,32 @@ import java.awt.event.ActionListener;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import javax.swing.*;
 import javax.swing.border.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
-import tablut.ComputerPlayer;
 import tablut.History;
-import tablut.HumanPlayer;
 import tablut.Judge;
 import tablut.Manager;
 import tablut.PcPlayPauseButton;
 import tablut.PlayBoard;
+import tablut.PlayerFactory;
 import tablut.RedoButton;
+import tablut.SearchStatistics;
 import tablut.Storage;
 import tablut.TablutCoordinate;
 import tablut.TablutSquare;
 import tablut.UndoButton;
 import tablut.listeners.MarkSquareListener;
 import tablut.listeners.PcIsThinkingListener;
+import tablut.listeners.SearchProgressListener;
 
 /**
  * GUI hry.
  *
  * @author Ondřej Tom
  */
-public class GUIGame extends javax.swing.JFrame implements ChangeGUIListener, ChangePlayersSettingsListener, PcIsThinkingListener, MarkSquareListener
+public class GUIGame extends javax.swing.JFrame implements ChangeGUIListener, ChangePlayersSettingsListener, PcIsThinkingListener, SearchProgressListener, MarkSquareListener
 {
 	/**
 	 * Nastavení hry.
@@ -51,6 +54,12 @@ public class GUIGame extends javax.swing.JFrame implements ChangeGUIListener, Ch
 	private Manager manager;
 
 
+	/**
+	 * Napojení manažera na Swing (kliknutí, zprávy pro hráče).
+	 */
+	private GUIGameAdapter adapter;
+
+
 	/**
 	 * Logická reprezentace hrací desky.
 	 */
@@ -117,6 +126,7 @@ public class GUIGame extends javax.swing.JFrame implements ChangeGUIListener, Ch
 
 		// Nastavení objektů GUI.
 		setManager(manager);
+		this.adapter			= new GUIGameAdapter(manager);
 		this.options			= options;
 		this.board				= manager.getPlayBoard();
 		this.history			= manager.getHistory();
@@ -127,6 +137,9 @@ public class GUIGame extends javax.swing.JFrame implements ChangeGUIListener, Ch
 		// Nastaví GUI jako posluchače pro událost změny nastavení hráčů.
 		playersSettings.addListener(this);
 
+		// Zprávy manažera pro hráče zobrazí adaptér.
+		manager.addGameMessageListener(adapter);
+
 		// Spustí inicializaci.
 		initGUI();
 
@@ -154,6 +167,7 @@ public class GUIGame extends javax.swing.JFrame implements ChangeGUIListener, Ch
 	{
 		this.manager = manager;
 		this.manager.addPcIsThinkingListener(this);
+		this.manager.addSearchProgressListener(this);
 	}
 
 
@@ -274,9 +288,9 @@ public class GUIGame extends javax.swing.JFrame implements ChangeGUIListener, Ch
 
 			for (j = 0; j < board[i].length; j++)
 			{
-				// Vytvoříme button a nastavíme managera jako posluchače.
+				// Vytvoříme button a nastavíme adaptér managera jako posluchače.
 				JButton b = new TablutSquare(i, j, board[i][j], this.board.isProtectedField(new int[]{i, j}));
-				b.addActionListener(manager);
+				b.addActionListener(adapter);
 
 				// Uložíme do pole.
 				squares[i][j] = b;
@@ -310,6 +324,7 @@ public class GUIGame extends javax.swing.JFrame implements ChangeGUIListener, Ch
 		JPanel buttonPanel = new JPanel();
 
 		PcPlayPauseButton playPauseButton = new PcPlayPauseButton(manager);
+		playPauseButton.addActionListener(adapter);
 
 		buttonPanel.add(playPauseButton);
 
@@ -346,7 +361,7 @@ public class GUIGame extends javax.swing.JFrame implements ChangeGUIListener, Ch
 		// Undo button.
 		JButton undoButton = new UndoButton();
 		undoButton.setPreferredSize(new Dimension(125, 25));
-		undoButton.addActionListener(manager);
+		undoButton.addActionListener(adapter);
 		if (history.getUndoItems().isEmpty())
 		{
 			undoButton.setEnabled(false);
@@ -355,7 +370,7 @@ public class GUIGame extends javax.swing.JFrame implements ChangeGUIListener, Ch
 		// Redo button.
 		JButton redoButton = new RedoButton();
 		redoButton.setPreferredSize(new Dimension(125, 25));
-		redoButton.addActionListener(manager);
+		redoButton.addActionListener(adapter);
 		if (history.getRedoItems().isEmpty())
 		{
 			redoButton.setEnabled(false);
@@ -678,27 +693,19 @@ public class GUIGame extends javax.swing.JFrame implements ChangeGUIListener, Ch
 	@Override
 	public void changePlayersSettings(ChangePlayersSettingsEvent event)
 	{
-		// Player A - počítač.
-		if (event.getPlayerATypeIndex() == 1)
-		{
-			manager.setPlayerA(new ComputerPlayer(event.getPlayerADifficultyIndex() == 1 ? 0 : event.getPlayerADifficultyIndex() + 1));
-		}
-		// Player A - člověk.
-		else
-		{
-			manager.setPlayerA(new HumanPlayer());
-		}
+		// Player A - počítač (se zachovaným časovým limitem), nebo člověk.
+		manager.setPlayerA(PlayerFactory.createPlayer(
+				event.getPlayerATypeIndex(),
+				event.getPlayerADifficultyIndex() == 1 ? 0 : event.getPlayerADifficultyIndex() + 1,
+				event.getPlayerATimeLimit())
+		);
 
-		// Player B - počítač.
-		if (event.getPlayerBTypeIndex() == 1)
-		{
-			manager.setPlayerB(new ComputerPlayer(event.getPlayerBDifficultyIndex() == 1 ? 0 : event.getPlayerBDifficultyIndex() + 1));
-		}
-		// Player B - člověk.
-		else
-		{
-			manager.setPlayerB(new HumanPlayer());
-		}
+		// Player B - počítač (se zachovaným časovým limitem), nebo člověk.
+		manager.setPlayerB(PlayerFactory.createPlayer(
+				event.getPlayerBTypeIndex(),
+				event.getPlayerBDifficultyIndex() == 1 ? 0 : event.getPlayerBDifficultyIndex() + 1,
+				event.getPlayerBTimeLimit())
+		);
 
 		this.options.loadSettings(event);
 
@@ -726,6 +733,29 @@ public class GUIGame extends javax.swing.JFrame implements ChangeGUIListener, Ch
 	}
 
 
+	/**
+	 * Voláno po každé dokončené iteraci generování.
+	 *
+	 * @param event
+	 */
+	@Override
+	public void searchProgress(SearchProgressEvent event)
+	{
+		int[][] bestMove = event.getBestMove();
+
+		SearchStatistics statistics = event.getStatistics();
+
+		statusBar.setInfoText(String.format(Locale.ROOT, "PC is thinking... depth %d, %d nodes, %d nps, TT %.0f %%, 1st cut %.0f %%, best ",
+				event.getDepth(), statistics.getNodes(), statistics.getNodesPerSecond(),
+				statistics.getTableHitRate() * 100, statistics.getFirstMoveCutoffRate() * 100) +
+				TablutCoordinate.getCoordinateText(bestMove[0][1], "horizontal") +
+				TablutCoordinate.getCoordinateText(bestMove[0][0], "vertical") +
+				" > " +
+				TablutCoordinate.getCoordinateText(bestMove[1][1], "horizontal") +
+				TablutCoordinate.getCoordinateText(bestMove[1][0], "vertical"));
+	}
+
+
 	public void showMoveHint(int[] from, int[] to)
 	{
 		statusBar.setInfoText("");
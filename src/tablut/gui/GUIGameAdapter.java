@@ -0,0 +1,99 @@
+package tablut.gui;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import javax.swing.JOptionPane;
+import tablut.Manager;
+import tablut.PcPlayPauseButton;
+import tablut.RedoButton;
+import tablut.TablutSquare;
+import tablut.UndoButton;
+import tablut.events.GameMessageEvent;
+import tablut.exceptions.HistoryException;
+import tablut.listeners.GameMessageListener;
+
+/**
+ * Napojení manažera na Swing.
+ *
+ * Převádí kliknutí na pole a tlačítka GUI na volání manažera a zprávy pro hráče
+ * zobrazuje v dialogu.
+ *
+ * @author Ondřej Tom
+ */
+public class GUIGameAdapter implements ActionListener, GameMessageListener
+{
+	/**
+	 * Manažer.
+	 */
+	private Manager manager;
+
+
+	/**
+	 * @param manager
+	 */
+	public GUIGameAdapter(Manager manager)
+	{
+		this.manager = manager;
+	}
+
+
+	/**
+	 * Byla vykonána akce - kliknutí na tlačítko.
+	 *
+	 * @param evt
+	 */
+	@Override
+	public void actionPerformed(ActionEvent evt)
+	{
+		// Kliknutí na hrací pole.
+		if (evt.getSource() instanceof TablutSquare)
+		{
+			TablutSquare square = (TablutSquare) evt.getSource();
+			manager.selectSquare(square.getXCoord(), square.getYCoord());
+		}
+
+		// Kliknutí na undo button.
+		if (evt.getSource() instanceof UndoButton)
+		{
+			try
+			{
+				manager.undoMove();
+			}
+			catch (HistoryException e)
+			{
+				JOptionPane.showMessageDialog(null, e.getMessage());
+			}
+		}
+
+		// Kliknutí na redo button.
+		if (evt.getSource() instanceof RedoButton)
+		{
+			try
+			{
+				manager.redoMove();
+			}
+			catch (HistoryException e)
+			{
+				JOptionPane.showMessageDialog(null, e.getMessage());
+			}
+		}
+
+		// Kliknutí na pozastavení/spuštění PC hry
+		if (evt.getSource() instanceof PcPlayPauseButton)
+		{
+			manager.changePausePlay();
+		}
+	}
+
+
+	/**
+	 * Zobrazí zprávu pro hráče (hrací smyčka čeká na potvrzení dialogu).
+	 *
+	 * @param event
+	 */
+	@Override
+	public void gameMessage(GameMessageEvent event)
+	{
+		JOptionPane.showMessageDialog(null, event.getMessage());
+	}
+}
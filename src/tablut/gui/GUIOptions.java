@@ -14,7 +14,7 @@ import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.filechooser.FileNameExtensionFilter;
-import tablut.GameThread;
+import tablut.GameScheduler;
 import tablut.Manager;
 import tablut.Storage;
 import tablut.events.ChangePlayersSettingsEvent;
@@ -27,9 +27,9 @@ import tablut.events.ChangePlayersSettingsEvent;
 public class GUIOptions extends javax.swing.JFrame implements LoadGameListener
 {
 	/**
-	 * Vlákno běžící hry.
+	 * Plánovač her (hrací smyčky všech spuštěných her).
 	 */
-	private Thread gameThread;
+	private GameScheduler scheduler = new GameScheduler();
 
 
 	/**
@@ -154,9 +154,8 @@ public class GUIOptions extends javax.swing.JFrame implements LoadGameListener
 		manager.addChangeGUIListener(gui);
 		manager.addMarkSquareListener(gui);
 
-		// Zahájí hru - vytvoří nové vlákno.
-		gameThread = new GameThread(manager);
-		gameThread.start();
+		// Zahájí hru - předá ji plánovači her.
+		scheduler.submit(manager);
 	}
 
 
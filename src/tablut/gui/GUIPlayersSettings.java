@@ -113,6 +113,18 @@ public class GUIPlayersSettings extends javax.swing.JFrame
 	}
 
 
+	/**
+	 * Vrátí časový limit hráče na jeden tah (dialog ho nemění, nastavení hráčů ho zachová).
+	 *
+	 * @param player
+	 * @return
+	 */
+	private int getTimeLimit(Player player)
+	{
+		return player instanceof ComputerPlayer ? ((ComputerPlayer) player).getTimeLimit() : 0;
+	}
+
+
 	/**
 	 * Nastaví hodnoty talčítek pro volbu hráčů.
 	 */
@@ -298,7 +310,7 @@ public class GUIPlayersSettings extends javax.swing.JFrame
     private void okButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_okButtonActionPerformed
 		for (ChangePlayersSettingsListener listener : listeners)
 		{
-			listener.changePlayersSettings(new ChangePlayersSettingsEvent(this, russianPlayer.getSelectedIndex(), difficultyRussians.getSelectedIndex() + 1, swedePlayer.getSelectedIndex(), difficultySwedes.getSelectedIndex() + 1));
+			listener.changePlayersSettings(new ChangePlayersSettingsEvent(this, russianPlayer.getSelectedIndex(), difficultyRussians.getSelectedIndex() + 1, swedePlayer.getSelectedIndex(), difficultySwedes.getSelectedIndex() + 1, getTimeLimit(manager.getPlayerA()), getTimeLimit(manager.getPlayerB())));
 		}
 
 		this.setVisible(false);
@@ -0,0 +1,20 @@
+package tablut.listeners;
+
+import tablut.events.GameMessageEvent;
+
+/**
+ * Rozhraní pro posluchače události GameMessageEvent.
+ *
+ * @author Ondřej Tom
+ */
+public interface GameMessageListener extends java.util.EventListener
+{
+	/**
+	 * Zobrazí zprávu pro hráče.
+	 *
+	 * Volá se z vlákna hrací smyčky, která do návratu metody nepokračuje.
+	 *
+	 * @param event
+	 */
+	public void gameMessage(GameMessageEvent event);
+}
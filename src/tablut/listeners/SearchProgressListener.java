@@ -0,0 +1,18 @@
+package tablut.listeners;
+
+import tablut.events.SearchProgressEvent;
+
+/**
+ * Rozhraní posluchače události průběhu hledání nejlepšího tahu.
+ *
+ * @author Ondřej Tom
+ */
+public interface SearchProgressListener extends java.util.EventListener
+{
+	/**
+	 * Voláno po každé dokončené iteraci hledání (z vlákna hledání).
+	 *
+	 * @param event
+	 */
+	public void searchProgress(SearchProgressEvent event);
+}
@@ -0,0 +1,591 @@
+package tablut.tools;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import tablut.ComputerPlayer;
+import tablut.IncrementalEvaluator;
+import tablut.Judge;
+import tablut.PlayBoard;
+import tablut.TablutSquare;
+import tablut.exceptions.PlayerException;
+import tablut.exceptions.StorageException;
+
+/**
+ * Offline ladění vah hodnotitele (Texelova metoda).
+ *
+ * Čte soubor pozic s výsledky partií, pro každou klidovou pozici spočítá charakteristiky
+ * IncrementalEvaluator a hledá váhy, pro které ohodnocení převedené sigmoidou nejlépe
+ * odpovídá výsledkům (nejmenší střední kvadratická chyba). Chyba se počítá po dávkách
+ * ve více vláknech, váhy se hledají lokálním prohledáváním s postupně zmenšovaným krokem.
+ * Výsledek se zapíše do souboru vah, který načítá ComputerPlayer.
+ *
+ * Soubor pozic má na každém řádku: 81 číslic desky (po řádcích), hráče na tahu
+ * a výsledek partie z pohledu švédů (1 výhra, 0.5 remíza, 0 prohra). Takový soubor
+ * vytvoří režim "generate" z partií počítače proti sobě.
+ *
+ * Použití:
+ *   EvaluationTuner generate <počet partií> <obtížnost> <soubor pozic>
+ *   EvaluationTuner tune <soubor pozic> <soubor vah> [počet vláken]
+ *
+ * @author Ondřej Tom
+ */
+public class EvaluationTuner
+{
+	/**
+	 * Počet prvních tahů partie, které se do souboru pozic nezapisují.
+	 */
+	private static int SKIPPED_OPENING_MOVES = 4;
+
+
+	/**
+	 * Maximální délka generované partie (půltahy), poté je partie remízou.
+	 */
+	private static int MAX_GAME_MOVES = 200;
+
+
+	/**
+	 * Pravděpodobnost náhodného tahu v generované partii (pro různorodost pozic).
+	 */
+	private static double RANDOM_MOVE_PROBABILITY = 0.1;
+
+
+	/**
+	 * Počáteční krok lokálního prohledávání.
+	 */
+	private static int INITIAL_STEP = 16;
+
+
+	/**
+	 * Rozsah a krok hledání měřítka sigmoidy.
+	 */
+	private static double MIN_SCALE		= 0.00001;
+	private static double MAX_SCALE		= 0.1;
+	private static double SCALE_FACTOR	= 1.1;
+
+
+	/**
+	 * Charakteristiky pozic [pozice * WEIGHTS_COUNT + váha].
+	 */
+	private int[] features;
+
+
+	/**
+	 * Výsledky partií z pohledu švédů [pozice].
+	 */
+	private double[] results;
+
+
+	/**
+	 * Počet načtených pozic.
+	 */
+	private int positionsCount;
+
+
+	/**
+	 * Počet vláken pro výpočet chyby.
+	 */
+	private int threads;
+
+
+	/**
+	 * Vlákna pro výpočet chyby.
+	 */
+	private ExecutorService executor;
+
+
+	/**
+	 * @param threads	počet vláken pro výpočet chyby
+	 */
+	public EvaluationTuner(int threads)
+	{
+		this.threads	= Math.max(1, threads);
+		this.executor	= Executors.newFixedThreadPool(this.threads);
+	}
+
+
+	/**
+	 * Ukončí vlákna tuneru.
+	 */
+	public void shutdown()
+	{
+		executor.shutdownNow();
+	}
+
+
+	/**
+	 * Vrátí počet načtených (klidových) pozic.
+	 *
+	 * @return
+	 */
+	public int getPositionsCount()
+	{
+		return positionsCount;
+	}
+
+
+	/**
+	 * Načte soubor pozic. Koncové pozice a pozice, kde hráč na tahu může zajímat
+	 * nebo uniknout králem, se vynechají.
+	 *
+	 * @param file
+	 * @throws StorageException
+	 */
+	public void loadPositions(File file) throws StorageException
+	{
+		List<int[]> featuresList	= new ArrayList<>();
+		List<Double> resultsList	= new ArrayList<>();
+		int[] moves					= new int[Judge.MAX_MOVES_COUNT];
+		int lineNumber				= 0;
+		String line;
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(file)))
+		{
+			while ((line = reader.readLine()) != null)
+			{
+				lineNumber++;
+				line = line.trim();
+
+				if (line.isEmpty() || line.startsWith("#"))
+				{
+					continue;
+				}
+
+				String[] parts = line.split("\\s+");
+
+				if (parts.length != 3 || parts[0].length() != PlayBoard.SQUARES_COUNT)
+				{
+					throw new StorageException("Invalid position on line " + lineNumber + ".");
+				}
+
+				int player;
+				double result;
+
+				try
+				{
+					player = Integer.parseInt(parts[1]);
+					result = Double.parseDouble(parts[2]);
+				}
+				catch (NumberFormatException e)
+				{
+					throw new StorageException("Invalid position on line " + lineNumber + ".", e);
+				}
+
+				Judge judge = new Judge(new PlayBoard(parseBoard(parts[0])));
+
+				if (judge.isPlayerWinner(TablutSquare.RUSSIAN) || judge.isPlayerWinner(TablutSquare.SWEDEN) || !isQuiet(judge, player, moves))
+				{
+					continue;
+				}
+
+				IncrementalEvaluator evaluator = new IncrementalEvaluator();
+				evaluator.reset(judge.getBoard());
+
+				featuresList.add(evaluator.getFeatures(judge.getBoard()));
+				resultsList.add(result);
+			}
+		}
+		catch (IOException e)
+		{
+			throw new StorageException("Loading positions file failed: " + e.getMessage(), e);
+		}
+
+		positionsCount	= featuresList.size();
+		features		= new int[positionsCount * IncrementalEvaluator.WEIGHTS_COUNT];
+		results			= new double[positionsCount];
+
+		for (int i = 0; i < positionsCount; i++)
+		{
+			System.arraycopy(featuresList.get(i), 0, features, i * IncrementalEvaluator.WEIGHTS_COUNT, IncrementalEvaluator.WEIGHTS_COUNT);
+			results[i] = resultsList.get(i);
+		}
+	}
+
+
+	/**
+	 * Převede 81 číslic na hrací desku.
+	 *
+	 * @param digits
+	 * @return
+	 * @throws StorageException
+	 */
+	private static int[][] parseBoard(String digits) throws StorageException
+	{
+		int[][] board = new int[PlayBoard.SIZE + 1][PlayBoard.SIZE + 1];
+
+		for (int i = 0; i < PlayBoard.SQUARES_COUNT; i++)
+		{
+			int value = digits.charAt(i) - '0';
+
+			if (value < 0 || value > TablutSquare.KING)
+			{
+				throw new StorageException("Invalid square value " + digits.charAt(i) + ".");
+			}
+
+			board[i / (PlayBoard.SIZE + 1)][i % (PlayBoard.SIZE + 1)] = value;
+		}
+
+		return board;
+	}
+
+
+	/**
+	 * Zjistí, zda-li je pozice klidná (hráč na tahu nemůže zajímat ani uniknout králem).
+	 *
+	 * @param judge
+	 * @param player
+	 * @param moves
+	 * @return
+	 */
+	private static boolean isQuiet(Judge judge, int player, int[] moves)
+	{
+		int count = judge.generateMoves(player, moves);
+
+		for (int i = 0; i < count; i++)
+		{
+			if (judge.isKingEscapeMove(moves[i]) || judge.isCapturingMove(moves[i], player))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Spočítá střední kvadratickou chybu předpovědi výsledků pro dané váhy.
+	 *
+	 * @param weights
+	 * @param k			měřítko sigmoidy
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public double computeError(final int[] weights, final double k) throws InterruptedException
+	{
+		List<Future<Double>> futures = new ArrayList<>();
+		int batchSize = Math.max(1, (positionsCount + threads - 1) / threads);
+
+		for (int start = 0; start < positionsCount; start += batchSize)
+		{
+			final int from	= start;
+			final int to	= Math.min(positionsCount, start + batchSize);
+
+			futures.add(executor.submit(new Callable<Double>()
+			{
+				@Override
+				public Double call()
+				{
+					return computeBatchError(weights, k, from, to);
+				}
+			}));
+		}
+
+		double sum = 0;
+
+		try
+		{
+			for (Future<Double> future : futures)
+			{
+				sum += future.get();
+			}
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException("Computing error failed.", e.getCause());
+		}
+
+		return sum / Math.max(1, positionsCount);
+	}
+
+
+	/**
+	 * Spočítá součet kvadratických chyb dávky pozic.
+	 *
+	 * @param weights
+	 * @param k
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	private double computeBatchError(int[] weights, double k, int from, int to)
+	{
+		double sum = 0, predicted;
+		int valuation, offset;
+
+		for (int i = from; i < to; i++)
+		{
+			valuation	= 0;
+			offset		= i * IncrementalEvaluator.WEIGHTS_COUNT;
+
+			for (int j = 0; j < IncrementalEvaluator.WEIGHTS_COUNT; j++)
+			{
+				valuation += weights[j] * features[offset + j];
+			}
+
+			// Stejně omezené ohodnocení, jaké vrací IncrementalEvaluator při hře.
+			valuation	= IncrementalEvaluator.limitValuation(valuation);
+			predicted	= 1.0 / (1.0 + Math.exp(-k * valuation));
+			sum			+= (results[i] - predicted) * (results[i] - predicted);
+		}
+
+		return sum;
+	}
+
+
+	/**
+	 * Najde měřítko sigmoidy, při kterém mají dané váhy nejmenší chybu.
+	 *
+	 * @param weights
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public double fitScale(int[] weights) throws InterruptedException
+	{
+		double best = MIN_SCALE, bestError = computeError(weights, best), error;
+
+		// Geometrické procházení možných měřítek.
+		for (double k = MIN_SCALE * SCALE_FACTOR; k <= MAX_SCALE; k *= SCALE_FACTOR)
+		{
+			error = computeError(weights, k);
+
+			if (error < bestError)
+			{
+				best		= k;
+				bestError	= error;
+			}
+		}
+
+		return best;
+	}
+
+
+	/**
+	 * Vyladí váhy lokálním prohledáváním.
+	 *
+	 * Váha ruského kamene zůstává pevná (jednotka ohodnocení). Ostatní váhy se postupně
+	 * zkouší posunout o krok nahoru i dolů a změna se ponechá, pokud sníží chybu.
+	 * Když už žádná změna chybu nesníží, krok se zmenší na polovinu.
+	 *
+	 * @param initialWeights
+	 * @param k
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public int[] tune(int[] initialWeights, double k) throws InterruptedException
+	{
+		int[] weights = initialWeights.clone();
+		double bestError = computeError(weights, k), error;
+		boolean improved;
+
+		System.out.println("Initial error: " + bestError);
+
+		for (int step = INITIAL_STEP; step >= 1; step /= 2)
+		{
+			do
+			{
+				improved = false;
+
+				for (int i = 0; i < IncrementalEvaluator.WEIGHTS_COUNT; i++)
+				{
+					if (i == IncrementalEvaluator.WEIGHT_RUSSIAN_STONE)
+					{
+						continue;
+					}
+
+					for (int sign = 1; sign >= -1; sign -= 2)
+					{
+						weights[i] += sign * step;
+						error = computeError(weights, k);
+
+						if (error < bestError)
+						{
+							bestError	= error;
+							improved	= true;
+							break;
+						}
+
+						weights[i] -= sign * step;
+					}
+				}
+
+				System.out.println("Step " + step + ", error: " + bestError + ", weights: " + Arrays.toString(weights));
+			}
+			while (improved);
+		}
+
+		return weights;
+	}
+
+
+	/**
+	 * Odehraje partie počítače proti sobě a zapíše jejich pozice s výsledky.
+	 *
+	 * @param games
+	 * @param difficulty
+	 * @param file
+	 * @throws PlayerException
+	 * @throws StorageException
+	 */
+	public static void generatePositions(int games, int difficulty, File file) throws PlayerException, StorageException
+	{
+		Random random	= new Random();
+		int[] moves		= new int[Judge.MAX_MOVES_COUNT];
+
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(file)))
+		{
+			for (int game = 0; game < games; game++)
+			{
+				ComputerPlayer computer	= new ComputerPlayer(difficulty);
+				Judge judge				= new Judge(new PlayBoard());
+				List<String> positions	= new ArrayList<>();
+				int player				= TablutSquare.RUSSIAN;
+				double result			= 0.5;
+
+				for (int move = 0; move < MAX_GAME_MOVES; move++)
+				{
+					if (judge.isPlayerWinner(TablutSquare.SWEDEN))
+					{
+						result = 1;
+						break;
+					}
+
+					if (judge.isPlayerWinner(TablutSquare.RUSSIAN))
+					{
+						result = 0;
+						break;
+					}
+
+					if (judge.isBlindMovesCountReached())
+					{
+						break;
+					}
+
+					if (move >= SKIPPED_OPENING_MOVES)
+					{
+						positions.add(formatBoard(judge.getBoard()) + " " + player);
+					}
+
+					int count = judge.generateMoves(player, moves);
+
+					// Hráč bez tahů prohrál.
+					if (count == 0)
+					{
+						result = player == TablutSquare.SWEDEN ? 0 : 1;
+						break;
+					}
+
+					if (move < SKIPPED_OPENING_MOVES || random.nextDouble() < RANDOM_MOVE_PROBABILITY)
+					{
+						judge.playGameMove(moves[random.nextInt(count)], player);
+					}
+					else
+					{
+						int[][] best = computer.getBestMove(judge, player, null, 0);
+						judge.playGameMove(best[0], best[1], player);
+					}
+
+					player = judge.getOtherPlayer(player);
+				}
+
+				for (String position : positions)
+				{
+					writer.write(position + " " + result);
+					writer.newLine();
+				}
+
+				System.out.println("Game " + (game + 1) + "/" + games + ": " + result + " (" + positions.size() + " positions)");
+			}
+		}
+		catch (IOException e)
+		{
+			throw new StorageException("Saving positions file failed: " + e.getMessage(), e);
+		}
+	}
+
+
+	/**
+	 * Převede hrací desku na 81 číslic.
+	 *
+	 * @param board
+	 * @return
+	 */
+	private static String formatBoard(PlayBoard board)
+	{
+		StringBuilder digits = new StringBuilder(PlayBoard.SQUARES_COUNT);
+
+		for (int i = 0; i < PlayBoard.SQUARES_COUNT; i++)
+		{
+			digits.append(board.getSquareValue(i));
+		}
+
+		return digits.toString();
+	}
+
+
+	/**
+	 * @param args the command line arguments
+	 */
+	public static void main(String[] args)
+	{
+		try
+		{
+			if (args.length == 4 && args[0].equals("generate"))
+			{
+				generatePositions(Integer.parseInt(args[1]), Integer.parseInt(args[2]), new File(args[3]));
+				return;
+			}
+
+			if ((args.length == 3 || args.length == 4) && args[0].equals("tune"))
+			{
+				int threads = args.length == 4 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+				EvaluationTuner tuner = new EvaluationTuner(threads);
+
+				try
+				{
+					tuner.loadPositions(new File(args[1]));
+					System.out.println("Quiet positions: " + tuner.getPositionsCount());
+
+					int[] initial	= IncrementalEvaluator.DEFAULT_WEIGHTS;
+					double k		= tuner.fitScale(initial);
+					System.out.println("Sigmoid scale: " + k);
+
+					int[] weights = tuner.tune(initial, k);
+					new IncrementalEvaluator(weights).save(new File(args[2]), "Tuned on " + tuner.getPositionsCount() + " positions, error scale " + k);
+				}
+				finally
+				{
+					tuner.shutdown();
+				}
+
+				return;
+			}
+
+			System.err.println("Usage: EvaluationTuner generate <games> <difficulty> <positions file>");
+			System.err.println("       EvaluationTuner tune <positions file> <weights file> [threads]");
+			System.exit(1);
+		}
+		catch (PlayerException | StorageException | NumberFormatException e)
+		{
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			System.exit(1);
+		}
+	}
+}
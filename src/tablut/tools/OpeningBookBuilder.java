@@ -0,0 +1,316 @@
+package tablut.tools;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import tablut.ComputerPlayer;
+import tablut.HistoryItem;
+import tablut.Judge;
+import tablut.Manager;
+import tablut.OpeningBook;
+import tablut.PlayBoard;
+import tablut.Storage;
+import tablut.TablutSquare;
+import tablut.exceptions.PlayerException;
+import tablut.exceptions.StorageException;
+
+/**
+ * Sestavení knihovny zahájení.
+ *
+ * Prochází prvních několik tahů partií - uložených her (XML soubory Storage v adresáři)
+ * nebo partií počítače proti sobě - a každému tahu připočte body podle výsledku partie
+ * z pohledu hráče, který tah zahrál (výhra 2, remíza či nedohraná partie 1, prohra 0).
+ * Tahy, které vedly pouze k prohrám, do knihovny nepatří.
+ *
+ * Použití:
+ *   OpeningBookBuilder xml <adresář her> <soubor knihovny> [počet půltahů]
+ *   OpeningBookBuilder selfplay <počet partií> <obtížnost> <soubor knihovny> [počet půltahů]
+ *
+ * @author Ondřej Tom
+ */
+public class OpeningBookBuilder
+{
+	/**
+	 * Výchozí počet půltahů partie, které se zapisují do knihovny.
+	 */
+	public static int DEFAULT_BOOK_MOVES = 12;
+
+
+	/**
+	 * Maximální délka partie počítače proti sobě (půltahy), poté je partie remízou.
+	 */
+	private static int MAX_GAME_MOVES = 200;
+
+
+	/**
+	 * Počet náhodných půltahů na začátku partie počítače proti sobě (pro různorodost partií).
+	 */
+	private static int RANDOM_OPENING_MOVES = 2;
+
+
+	/**
+	 * Souhrnné body tahů [hash pozice -> (zabalený tah -> body)].
+	 */
+	private Map<Long, Map<Integer, Integer>> entries = new HashMap<>();
+
+
+	/**
+	 * Počet půltahů partie, které se zapisují do knihovny.
+	 */
+	private int bookMoves;
+
+
+	/**
+	 * Počet zpracovaných partií.
+	 */
+	private int gamesCount = 0;
+
+
+	/**
+	 * @param bookMoves	počet půltahů partie, které se zapisují do knihovny
+	 */
+	public OpeningBookBuilder(int bookMoves)
+	{
+		this.bookMoves = bookMoves;
+	}
+
+
+	/**
+	 * Vrátí počet zpracovaných partií.
+	 *
+	 * @return
+	 */
+	public int getGamesCount()
+	{
+		return gamesCount;
+	}
+
+
+	/**
+	 * Připočte tah partie.
+	 *
+	 * @param board
+	 * @param playerOnMove
+	 * @param from
+	 * @param to
+	 * @param winner		vítěz partie (0 = remíza či nedohraná partie)
+	 */
+	private void addMove(PlayBoard board, int playerOnMove, int[] from, int[] to, int winner)
+	{
+		long hash	= board.getHash(playerOnMove);
+		int move	= Judge.packMove(PlayBoard.getSquareIndex(from[0], from[1]), PlayBoard.getSquareIndex(to[0], to[1]));
+		int points	= winner == 0 ? 1 : (winner == playerOnMove ? 2 : 0);
+
+		Map<Integer, Integer> positionMoves = entries.get(hash);
+
+		if (positionMoves == null)
+		{
+			positionMoves = new HashMap<>();
+			entries.put(hash, positionMoves);
+		}
+
+		Integer current = positionMoves.get(move);
+		positionMoves.put(move, (current == null ? 0 : current) + points);
+	}
+
+
+	/**
+	 * Zpracuje uloženou hru (zahrané tahy z historie).
+	 *
+	 * @param file
+	 * @throws StorageException
+	 */
+	public void addStoredGame(File file) throws StorageException
+	{
+		Manager manager			= new Storage().load(file);
+		List<HistoryItem> items	= manager.getHistory().getUndoItems();
+
+		for (int i = 0; i < items.size() && i < bookMoves; i++)
+		{
+			HistoryItem item = items.get(i);
+
+			addMove(item.getBoard(), item.getPlayerOnMove(), item.getMoveFrom(), item.getMoveTo(), manager.getWinner());
+		}
+
+		gamesCount++;
+	}
+
+
+	/**
+	 * Zpracuje všechny uložené hry (XML soubory) v adresáři. Nečitelné soubory přeskočí.
+	 *
+	 * @param directory
+	 * @throws StorageException
+	 */
+	public void addStoredGames(File directory) throws StorageException
+	{
+		File[] files = directory.listFiles();
+
+		if (files == null)
+		{
+			throw new StorageException("Directory " + directory + " can't be read.");
+		}
+
+		for (File file : files)
+		{
+			if (!file.isFile() || !file.getName().endsWith(".xml"))
+			{
+				continue;
+			}
+
+			try
+			{
+				addStoredGame(file);
+			}
+			catch (StorageException | RuntimeException e)
+			{
+				System.err.println("Skipping " + file + ": " + e.getMessage());
+			}
+		}
+	}
+
+
+	/**
+	 * Odehraje partii počítače proti sobě a zpracuje tahy počítače.
+	 *
+	 * Několik úvodních tahů je náhodných, aby se partie lišily - ty se do knihovny nezapisují.
+	 *
+	 * @param difficulty
+	 * @param random
+	 * @throws PlayerException
+	 */
+	public void addSelfPlayGame(int difficulty, Random random) throws PlayerException
+	{
+		ComputerPlayer computer	= new ComputerPlayer(difficulty);
+		Judge judge				= new Judge(new PlayBoard());
+		int[] moves				= new int[Judge.MAX_MOVES_COUNT];
+		int player				= TablutSquare.RUSSIAN;
+		int winner				= 0;
+
+		int[][][] playedMoves	= new int[bookMoves][][];
+		PlayBoard[] boards		= new PlayBoard[bookMoves];
+		int[] players			= new int[bookMoves];
+
+		computer.setOpeningBook(null);
+
+		for (int move = 0; move < MAX_GAME_MOVES; move++)
+		{
+			if (judge.isPlayerWinner(TablutSquare.RUSSIAN) || judge.isPlayerWinner(TablutSquare.SWEDEN))
+			{
+				winner = judge.isPlayerWinner(TablutSquare.RUSSIAN) ? TablutSquare.RUSSIAN : TablutSquare.SWEDEN;
+				break;
+			}
+
+			if (judge.isBlindMovesCountReached())
+			{
+				break;
+			}
+
+			int count = judge.generateMoves(player, moves);
+
+			// Hráč bez tahů prohrál.
+			if (count == 0)
+			{
+				winner = judge.getOtherPlayer(player);
+				break;
+			}
+
+			int[][] played;
+
+			if (move < RANDOM_OPENING_MOVES)
+			{
+				played = Judge.unpackMove(moves[random.nextInt(count)]);
+			}
+			else
+			{
+				played = computer.getBestMove(judge, player, null, 0);
+
+				if (move < bookMoves)
+				{
+					boards[move]		= (PlayBoard) judge.getBoard().clone();
+					players[move]		= player;
+					playedMoves[move]	= played;
+				}
+			}
+
+			judge.playGameMove(played[0], played[1], player);
+			player = judge.getOtherPlayer(player);
+		}
+
+		for (int move = 0; move < bookMoves; move++)
+		{
+			if (boards[move] != null)
+			{
+				addMove(boards[move], players[move], playedMoves[move][0], playedMoves[move][1], winner);
+			}
+		}
+
+		gamesCount++;
+	}
+
+
+	/**
+	 * Sestaví knihovnu ze zpracovaných partií.
+	 *
+	 * @return
+	 */
+	public OpeningBook build()
+	{
+		return OpeningBook.create(entries);
+	}
+
+
+	/**
+	 * @param args the command line arguments
+	 */
+	public static void main(String[] args)
+	{
+		try
+		{
+			OpeningBookBuilder builder;
+			File bookFile;
+
+			if ((args.length == 3 || args.length == 4) && args[0].equals("xml"))
+			{
+				builder		= new OpeningBookBuilder(args.length == 4 ? Integer.parseInt(args[3]) : DEFAULT_BOOK_MOVES);
+				bookFile	= new File(args[2]);
+
+				builder.addStoredGames(new File(args[1]));
+			}
+			else if ((args.length == 4 || args.length == 5) && args[0].equals("selfplay"))
+			{
+				int games		= Integer.parseInt(args[1]);
+				int difficulty	= Integer.parseInt(args[2]);
+				Random random	= new Random();
+
+				builder		= new OpeningBookBuilder(args.length == 5 ? Integer.parseInt(args[4]) : DEFAULT_BOOK_MOVES);
+				bookFile	= new File(args[3]);
+
+				for (int i = 0; i < games; i++)
+				{
+					builder.addSelfPlayGame(difficulty, random);
+					System.out.println("Game " + (i + 1) + "/" + games);
+				}
+			}
+			else
+			{
+				System.err.println("Usage: OpeningBookBuilder xml <games directory> <book file> [book moves]");
+				System.err.println("       OpeningBookBuilder selfplay <games> <difficulty> <book file> [book moves]");
+				System.exit(1);
+				return;
+			}
+
+			OpeningBook book = builder.build();
+			book.save(bookFile);
+
+			System.out.println("Games: " + builder.getGamesCount() + ", book moves: " + book.getSize());
+		}
+		catch (PlayerException | StorageException | NumberFormatException e)
+		{
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+}
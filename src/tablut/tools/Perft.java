@@ -0,0 +1,497 @@
+package tablut.tools;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import tablut.Judge;
+import tablut.Manager;
+import tablut.PlayBoard;
+import tablut.Storage;
+import tablut.TablutSquare;
+import tablut.exceptions.JudgeException;
+import tablut.exceptions.StorageException;
+
+/**
+ * Počítání pozic (perft) - počet všech posloupností tahů dané délky z pozice.
+ *
+ * Slouží jako kontrola pravidel (počty pro danou pozici a hloubku se po změně generátoru
+ * tahů nesmí změnit) a jako měřítko rychlosti generování a hraní tahů. Pozice s vítězem
+ * nemá žádné tahy, pravidlo počtu tahů bez zajmutí se nezohledňuje.
+ *
+ * Tahy z výchozí pozice lze počítat ve více vláknech (každé vlákno má vlastní kopii
+ * rozhodčího) a mezivýsledky lze ukládat do tabulky podle hashe pozice a zbývající hloubky.
+ *
+ * Režim check počítá pozice navíc pomalou cestou (getPossibleMoves, kopie rozhodčího)
+ * a v každém uzlu porovnává tahy obou generátorů a hash desky po vrácení tahu.
+ *
+ * Použití:
+ *   Perft <hloubka> [počet vláken] [velikost tabulky v MB] [uložená hra]
+ *   Perft check <hloubka> [uložená hra]
+ *
+ * @author Ondřej Tom
+ */
+public class Perft
+{
+	/**
+	 * Tabulka mezivýsledků [hash pozice, zbývající hloubka -> počet pozic].
+	 *
+	 * Záznam tvoří dvojice (klíč XOR počet, počet), takže při souběžném zápisu více vlákny
+	 * se poškozený záznam pozná a nepoužije (stejně jako v TranspositionTable).
+	 */
+	public static class Cache
+	{
+		/**
+		 * Velikost jednoho záznamu (bajty).
+		 */
+		private static int ENTRY_SIZE = 16;
+
+
+		/**
+		 * Klíče záznamů (klíč XOR počet).
+		 */
+		private long[] keys;
+
+
+		/**
+		 * Počty pozic.
+		 */
+		private long[] counts;
+
+
+		/**
+		 * Maska pro výpočet indexu záznamu z klíče.
+		 */
+		private int mask;
+
+
+		/**
+		 * @param sizeMB	paměťový rozpočet tabulky (MB)
+		 */
+		public Cache(int sizeMB)
+		{
+			long budget = Math.max(1, sizeMB) * 1024L * 1024L / ENTRY_SIZE;
+			int entries = 1;
+
+			// Počet záznamů zaokrouhlíme dolů na mocninu dvou.
+			while ((long) entries * 2 <= budget && entries < (1 << 30))
+			{
+				entries *= 2;
+			}
+
+			this.keys	= new long[entries];
+			this.counts	= new long[entries];
+			this.mask	= entries - 1;
+		}
+
+
+		/**
+		 * Vrátí klíč pozice a zbývající hloubky.
+		 *
+		 * @param hash
+		 * @param depth
+		 * @return
+		 */
+		private static long getKey(long hash, int depth)
+		{
+			return hash ^ (depth * 0x9E3779B97F4A7C15L);
+		}
+
+
+		/**
+		 * Vrátí index záznamu pro klíč.
+		 *
+		 * @param key
+		 * @return
+		 */
+		private int getIndex(long key)
+		{
+			return (int) (key ^ (key >>> 32)) & mask;
+		}
+
+
+		/**
+		 * Vyhledá počet pozic.
+		 *
+		 * @param hash
+		 * @param depth
+		 * @return počet pozic, nebo -1 pokud záznam neexistuje
+		 */
+		public long probe(long hash, int depth)
+		{
+			long key	= getKey(hash, depth);
+			int index	= getIndex(key);
+			long count	= counts[index];
+
+			if (count != 0 && (keys[index] ^ count) == key)
+			{
+				return count;
+			}
+
+			return -1;
+		}
+
+
+		/**
+		 * Uloží počet pozic (přepíše původní záznam).
+		 *
+		 * @param hash
+		 * @param depth
+		 * @param count
+		 */
+		public void store(long hash, int depth, long count)
+		{
+			long key	= getKey(hash, depth);
+			int index	= getIndex(key);
+
+			counts[index]	= count;
+			keys[index]		= key ^ count;
+		}
+	}
+
+
+	/**
+	 * Tabulka mezivýsledků (nebo null).
+	 */
+	private Cache cache;
+
+
+	/**
+	 * @param cache	tabulka mezivýsledků (nebo null)
+	 */
+	public Perft(Cache cache)
+	{
+		this.cache = cache;
+	}
+
+
+	/**
+	 * Zjistí, zda-li je v pozici vítěz (pozice nemá žádné tahy).
+	 *
+	 * @param judge
+	 * @return
+	 */
+	private static boolean isGameWon(Judge judge)
+	{
+		return judge.isPlayerWinner(TablutSquare.RUSSIAN) || judge.isPlayerWinner(TablutSquare.SWEDEN);
+	}
+
+
+	/**
+	 * Spočítá pozice do dané hloubky (zabalené tahy s vracením).
+	 *
+	 * @param judge
+	 * @param playerOnMove
+	 * @param depth
+	 * @param moves			pole pro tahy jednotlivých hloubek [depth + 1][MAX_MOVES_COUNT]
+	 * @return
+	 * @throws JudgeException
+	 */
+	public long perft(Judge judge, int playerOnMove, int depth, int[][] moves) throws JudgeException
+	{
+		if (depth == 0)
+		{
+			return 1;
+		}
+
+		if (isGameWon(judge))
+		{
+			return 0;
+		}
+
+		long hash = judge.getBoard().getHash(playerOnMove);
+
+		if (cache != null && depth > 1)
+		{
+			long cached = cache.probe(hash, depth);
+
+			if (cached >= 0)
+			{
+				return cached;
+			}
+		}
+
+		int count = judge.generateMoves(playerOnMove, moves[depth]);
+
+		// Na poslední úrovni stačí počet tahů.
+		if (depth == 1)
+		{
+			return count;
+		}
+
+		int other	= judge.getOtherPlayer(playerOnMove);
+		long nodes	= 0;
+
+		for (int i = 0; i < count; i++)
+		{
+			judge.playMove(moves[depth][i], playerOnMove);
+			nodes += perft(judge, other, depth - 1, moves);
+			judge.undoMove();
+		}
+
+		if (cache != null)
+		{
+			cache.store(hash, depth, nodes);
+		}
+
+		return nodes;
+	}
+
+
+	/**
+	 * Spočítá pozice do dané hloubky pro každý tah z výchozí pozice (tahy se rozdělí mezi vlákna).
+	 *
+	 * @param judge
+	 * @param playerOnMove
+	 * @param depth			hloubka (alespoň 1)
+	 * @param threads
+	 * @param rootMoves		pole pro tahy z výchozí pozice (vyplní se)
+	 * @return počty pozic podle tahů z výchozí pozice
+	 * @throws InterruptedException
+	 * @throws JudgeException
+	 */
+	public long[] divide(final Judge judge, final int playerOnMove, final int depth, int threads, int[] rootMoves) throws InterruptedException, JudgeException
+	{
+		int count = isGameWon(judge) ? 0 : judge.generateMoves(playerOnMove, rootMoves);
+		List<Callable<Long>> tasks = new ArrayList<>();
+
+		for (int i = 0; i < count; i++)
+		{
+			final int move = rootMoves[i];
+
+			tasks.add(new Callable<Long>()
+			{
+				@Override
+				public Long call() throws JudgeException
+				{
+					Judge copy = (Judge) judge.clone();
+					copy.playMove(move, playerOnMove);
+
+					return perft(copy, copy.getOtherPlayer(playerOnMove), depth - 1, new int[depth][Judge.MAX_MOVES_COUNT]);
+				}
+			});
+		}
+
+		ExecutorService executor	= Executors.newFixedThreadPool(Math.max(1, threads));
+		long[] nodes				= new long[count];
+
+		try
+		{
+			List<Future<Long>> futures = executor.invokeAll(tasks);
+
+			for (int i = 0; i < count; i++)
+			{
+				nodes[i] = futures.get(i).get();
+			}
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof JudgeException)
+			{
+				throw (JudgeException) e.getCause();
+			}
+
+			throw new IllegalStateException("Counting positions failed.", e.getCause());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		return nodes;
+	}
+
+
+	/**
+	 * Spočítá pozice pomalou cestou (getPossibleMoves, kopie rozhodčího) a ověří,
+	 * že zabalené tahy a jejich vracení dávají v každém uzlu totéž.
+	 *
+	 * @param judge
+	 * @param playerOnMove
+	 * @param depth
+	 * @return
+	 * @throws JudgeException
+	 */
+	public static long check(Judge judge, int playerOnMove, int depth) throws JudgeException
+	{
+		if (depth == 0)
+		{
+			return 1;
+		}
+
+		if (isGameWon(judge))
+		{
+			return 0;
+		}
+
+		PlayBoard board		= judge.getBoard();
+		List<int[][]> moves	= new ArrayList<>();
+		List<int[]> squares	= new ArrayList<>(board.getValuePositions(playerOnMove));
+
+		if (playerOnMove == TablutSquare.SWEDEN)
+		{
+			squares.addAll(board.getValuePositions(TablutSquare.KING));
+		}
+
+		for (int[] from : squares)
+		{
+			for (int[] to : judge.getPossibleMoves(from))
+			{
+				moves.add(new int[][]{from, to});
+			}
+		}
+
+		int[] packed	= new int[Judge.MAX_MOVES_COUNT];
+		int count		= judge.generateMoves(playerOnMove, packed);
+		int[] expected	= new int[moves.size()];
+
+		for (int i = 0; i < expected.length; i++)
+		{
+			int[][] move = moves.get(i);
+			expected[i] = Judge.packMove(PlayBoard.getSquareIndex(move[0][0], move[0][1]), PlayBoard.getSquareIndex(move[1][0], move[1][1]));
+		}
+
+		int[] generated = Arrays.copyOf(packed, count);
+
+		Arrays.sort(expected);
+		Arrays.sort(generated);
+
+		if (!Arrays.equals(expected, generated))
+		{
+			throw new IllegalStateException("Move generators differ in position " + Arrays.deepToString(board.getBoard()));
+		}
+
+		long hash	= board.getHash(playerOnMove);
+		long nodes	= 0;
+
+		for (int i = 0; i < count; i++)
+		{
+			int[][] move	= Judge.unpackMove(packed[i]);
+			Judge copy		= (Judge) judge.clone();
+
+			copy.playMove(move[0], move[1], playerOnMove);
+
+			judge.playMove(packed[i], playerOnMove);
+
+			if (judge.getBoard().getHash() != copy.getBoard().getHash())
+			{
+				throw new IllegalStateException("Played moves differ in position " + Arrays.deepToString(board.getBoard()));
+			}
+
+			judge.undoMove();
+
+			if (board.getHash(playerOnMove) != hash)
+			{
+				throw new IllegalStateException("Undoing move doesn't restore position:\n" + board);
+			}
+
+			nodes += check(copy, copy.getOtherPlayer(playerOnMove), depth - 1);
+		}
+
+		return nodes;
+	}
+
+
+	/**
+	 * Vrátí tah jako text se souřadnicemi jako v GUI (např. "D9-D7").
+	 *
+	 * @param move
+	 * @return
+	 */
+	private static String getMoveText(int move)
+	{
+		int[][] unpacked = Judge.unpackMove(move);
+
+		return getSquareText(unpacked[0]) + "-" + getSquareText(unpacked[1]);
+	}
+
+
+	/**
+	 * Vrátí souřadnice pole jako v GUI (sloupec písmenem, řádek číslem).
+	 *
+	 * @param square
+	 * @return
+	 */
+	private static String getSquareText(int[] square)
+	{
+		return String.valueOf((char) ('A' + square[1])) + (PlayBoard.SIZE + 1 - square[0]);
+	}
+
+
+	/**
+	 * @param args the command line arguments
+	 */
+	public static void main(String[] args)
+	{
+		boolean checkMode = args.length > 0 && args[0].equals("check");
+
+		if ((checkMode && args.length != 2 && args.length != 3) || (!checkMode && (args.length < 1 || args.length > 4)))
+		{
+			System.err.println("Usage: Perft <depth> [threads] [cache MB] [saved game]");
+			System.err.println("       Perft check <depth> [saved game]");
+			System.exit(1);
+			return;
+		}
+
+		try
+		{
+			String file		= checkMode ? (args.length == 3 ? args[2] : null) : (args.length == 4 ? args[3] : null);
+			int depth		= Integer.parseInt(args[checkMode ? 1 : 0]);
+			Judge judge		= new Judge(new PlayBoard());
+			int player		= TablutSquare.RUSSIAN;
+
+			if (depth < 1)
+			{
+				throw new NumberFormatException("Depth must be at least 1.");
+			}
+
+			if (file != null)
+			{
+				Manager manager = new Storage().load(new File(file));
+
+				judge	= new Judge(manager.getPlayBoard());
+				player	= manager.getPlayerOnMove();
+			}
+
+			long start = System.currentTimeMillis();
+			long nodes = 0;
+
+			if (checkMode)
+			{
+				nodes = check(judge, player, depth);
+			}
+			else
+			{
+				int threads		= args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+				int cacheSize	= args.length > 2 ? Integer.parseInt(args[2]) : 0;
+				int[] rootMoves	= new int[Judge.MAX_MOVES_COUNT];
+				long[] counts	= new Perft(cacheSize > 0 ? new Cache(cacheSize) : null).divide(judge, player, depth, threads, rootMoves);
+
+				for (int i = 0; i < counts.length; i++)
+				{
+					System.out.println(getMoveText(rootMoves[i]) + ": " + counts[i]);
+					nodes += counts[i];
+				}
+			}
+
+			long time = System.currentTimeMillis() - start;
+
+			System.out.println("Depth " + depth + ": " + nodes + " positions, " + time + " ms, " + nodes * 1000 / Math.max(1, time) + " positions/s");
+		}
+		catch (JudgeException | StorageException | NumberFormatException e)
+		{
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			System.exit(1);
+		}
+	}
+}
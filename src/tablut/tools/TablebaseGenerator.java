@@ -0,0 +1,398 @@
+package tablut.tools;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import tablut.EndgameTablebase;
+import tablut.Judge;
+import tablut.PlayBoard;
+import tablut.TablutSquare;
+import tablut.exceptions.JudgeException;
+import tablut.exceptions.StorageException;
+
+/**
+ * Generátor tablebáze koncovek (král proti nejvýše několika ruským kamenům).
+ *
+ * Retrográdní analýza opakovanými průchody: nejprve se označí neplatné a koncové pozice,
+ * pak se v každém průchodu u dosud nerozhodnutých pozic zkoumají tahy - pozice je výhrou,
+ * pokud některý tah vede k výhře hned nebo do prohrané pozice soupeře, a prohrou, pokud
+ * všechny tahy vedou do vyhraných pozic soupeře (nebo žádný tah není). Průchody končí,
+ * když se nic nezmění - zbylé pozice jsou remízové. Bloky pozic (hráč na tahu, pole krále)
+ * se zpracovávají ve více vláknech, každé zapisuje pouze své pozice.
+ *
+ * Průchod n používá pouze pozice rozhodnuté v dřívějších průchodech, takže pozice v něm
+ * rozhodnuté mají vzdálenost do konce partie právě n půltahů. Od vzdálenosti, kterou už
+ * tablebáze nerozliší (EndgameTablebase.MAX_DISTANCE), se použijí i pozice rozhodnuté
+ * ve stejném průchodu, aby se dlouhé koncovky rozhodly rychleji.
+ *
+ * Použití:
+ *   TablebaseGenerator <adresář tablebáze> <max. počet ruských kamenů> [počet vláken]
+ *
+ * @author Ondřej Tom
+ */
+public class TablebaseGenerator
+{
+	/**
+	 * Počet vláken generování.
+	 */
+	private int threads;
+
+
+	/**
+	 * Vlákna generování.
+	 */
+	private ExecutorService executor;
+
+
+	/**
+	 * @param threads	počet vláken generování
+	 */
+	public TablebaseGenerator(int threads)
+	{
+		this.threads	= Math.max(1, threads);
+		this.executor	= Executors.newFixedThreadPool(this.threads);
+	}
+
+
+	/**
+	 * Ukončí vlákna generátoru.
+	 */
+	public void shutdown()
+	{
+		executor.shutdownNow();
+	}
+
+
+	/**
+	 * Vygeneruje zakódované výsledky pozic s daným počtem ruských kamenů (jeden bajt na pozici).
+	 *
+	 * @param stones
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public byte[] generate(int stones) throws InterruptedException
+	{
+		final byte[] results = new byte[(int) EndgameTablebase.getPositionsCount(stones)];
+		int pass = 0, changed;
+
+		do
+		{
+			changed = runPass(stones, results, pass);
+
+			System.out.println("Stones " + stones + ", pass " + pass + ": " + changed + " positions resolved");
+			pass++;
+		}
+		while (changed > 0);
+
+		return results;
+	}
+
+
+	/**
+	 * Provede jeden průchod všemi bloky pozic.
+	 *
+	 * @param stones
+	 * @param results
+	 * @param pass		číslo průchodu (0 = označení neplatných a koncových pozic)
+	 * @return počet nově rozhodnutých pozic
+	 * @throws InterruptedException
+	 */
+	private int runPass(final int stones, final byte[] results, final int pass) throws InterruptedException
+	{
+		List<Callable<Integer>> tasks = new ArrayList<>();
+
+		for (int player = TablutSquare.RUSSIAN; player <= TablutSquare.SWEDEN; player++)
+		{
+			for (int kingSquare = 0; kingSquare < PlayBoard.SQUARES_COUNT; kingSquare++)
+			{
+				final int blockPlayer	= player;
+				final int blockKing		= kingSquare;
+
+				tasks.add(new Callable<Integer>()
+				{
+					@Override
+					public Integer call() throws JudgeException
+					{
+						return processBlock(stones, blockPlayer, blockKing, results, pass);
+					}
+				});
+			}
+		}
+
+		int changed = 0;
+
+		try
+		{
+			for (Future<Integer> future : executor.invokeAll(tasks))
+			{
+				changed += future.get();
+			}
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException("Generating tablebase failed.", e.getCause());
+		}
+
+		return changed;
+	}
+
+
+	/**
+	 * Zpracuje blok pozic se stejným hráčem na tahu a polem krále.
+	 *
+	 * @param stones
+	 * @param player
+	 * @param kingSquare
+	 * @param results
+	 * @param pass
+	 * @return počet nově rozhodnutých pozic
+	 * @throws JudgeException
+	 */
+	private int processBlock(int stones, int player, int kingSquare, byte[] results, int pass) throws JudgeException
+	{
+		PlayBoard board		= new PlayBoard(new int[PlayBoard.SIZE + 1][PlayBoard.SIZE + 1]);
+		Judge judge			= new Judge(board);
+		int[] russians		= new int[Math.max(1, stones)];
+		int[] moves			= new int[Judge.MAX_MOVES_COUNT];
+		int[] squares		= new int[Math.max(1, stones)];
+		int changed			= 0, result;
+		boolean initial		= pass == 0;
+
+		// První kombinace polí (0, 1, ...) má v bloku index 0.
+		for (int i = 0; i < stones; i++)
+		{
+			russians[i] = i;
+		}
+
+		long index	= EndgameTablebase.getIndex(player, kingSquare, russians, stones);
+		long end	= index + EndgameTablebase.getCombinationsCount(stones);
+
+		for (; index < end; index++, nextCombination(russians, stones))
+		{
+			if (EndgameTablebase.getResult(results[(int) index]) != EndgameTablebase.DRAW)
+			{
+				continue;
+			}
+
+			if (initial && !isValid(kingSquare, russians, stones))
+			{
+				results[(int) index] = EndgameTablebase.encode(EndgameTablebase.INVALID, 0);
+				continue;
+			}
+
+			setPosition(board, kingSquare, russians, stones, true);
+
+			if (initial && judge.isPlayerWinner(player))
+			{
+				result = EndgameTablebase.WIN;
+			}
+			else if (initial && judge.isPlayerLooser(player))
+			{
+				result = EndgameTablebase.LOSS;
+			}
+			else
+			{
+				result = resolve(judge, player, stones, results, moves, squares, pass);
+			}
+
+			setPosition(board, kingSquare, russians, stones, false);
+
+			if (result != EndgameTablebase.DRAW)
+			{
+				results[(int) index] = EndgameTablebase.encode(result, pass);
+				changed++;
+			}
+		}
+
+		return changed;
+	}
+
+
+	/**
+	 * Zjistí výsledek pozice podle výsledků pozic po tazích (DRAW = zatím nerozhodnuto).
+	 *
+	 * Použije pouze pozice rozhodnuté v dřívějších průchodech (viz popis třídy).
+	 *
+	 * @param judge
+	 * @param player
+	 * @param stones
+	 * @param results
+	 * @param moves
+	 * @param squares
+	 * @param pass
+	 * @return
+	 * @throws JudgeException
+	 */
+	private int resolve(Judge judge, int player, int stones, byte[] results, int[] moves, int[] squares, int pass) throws JudgeException
+	{
+		int count = judge.generateMoves(player, moves), childResult;
+		int other = judge.getOtherPlayer(player);
+		boolean allLost = true;
+		PlayBoard board = judge.getBoard();
+
+		for (int i = 0; i < count; i++)
+		{
+			judge.playMove(moves[i], player);
+
+			// Výhra tahem - soupeř prohrál po 0 půltazích.
+			if (judge.isPlayerWinner(player))
+			{
+				childResult = pass > 0 ? EndgameTablebase.LOSS : EndgameTablebase.DRAW;
+			}
+			else
+			{
+				board.getValueSquares(TablutSquare.RUSSIAN, squares);
+				byte childValue = results[(int) EndgameTablebase.getIndex(other, board.getKingsSquare(), squares, stones)];
+
+				childResult = EndgameTablebase.getDistance(childValue) < pass || pass > EndgameTablebase.MAX_DISTANCE
+						? EndgameTablebase.getResult(childValue)
+						: EndgameTablebase.DRAW;
+			}
+
+			judge.undoMove();
+
+			// Soupeř po tahu prohrává - pozice je vyhraná.
+			if (childResult == EndgameTablebase.LOSS)
+			{
+				return EndgameTablebase.WIN;
+			}
+
+			if (childResult != EndgameTablebase.WIN)
+			{
+				allLost = false;
+			}
+		}
+
+		// Všechny tahy vedou k výhře soupeře (nebo hráč nemá tah).
+		return allLost ? EndgameTablebase.LOSS : EndgameTablebase.DRAW;
+	}
+
+
+	/**
+	 * Zjistí, zda-li je pozice platná (kameny na různých polích, ruské kameny mimo "protected" pole).
+	 *
+	 * @param kingSquare
+	 * @param russians
+	 * @param stones
+	 * @return
+	 */
+	private static boolean isValid(int kingSquare, int[] russians, int stones)
+	{
+		for (int i = 0; i < stones; i++)
+		{
+			if (russians[i] == kingSquare || PlayBoard.isProtectedSquare(russians[i]))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Rozestaví (nebo odstraní) kameny pozice na desce.
+	 *
+	 * @param board
+	 * @param kingSquare
+	 * @param russians
+	 * @param stones
+	 * @param place
+	 */
+	private static void setPosition(PlayBoard board, int kingSquare, int[] russians, int stones, boolean place)
+	{
+		board.setCoordsValue(kingSquare / (PlayBoard.SIZE + 1), kingSquare % (PlayBoard.SIZE + 1), place ? TablutSquare.KING : 0);
+
+		for (int i = 0; i < stones; i++)
+		{
+			board.setCoordsValue(russians[i] / (PlayBoard.SIZE + 1), russians[i] % (PlayBoard.SIZE + 1), place ? TablutSquare.RUSSIAN : 0);
+		}
+	}
+
+
+	/**
+	 * Posune kombinaci polí na následující v pořadí indexů (kolexikograficky).
+	 *
+	 * @param squares
+	 * @param stones
+	 */
+	private static void nextCombination(int[] squares, int stones)
+	{
+		for (int i = 0; i < stones; i++)
+		{
+			int limit = i + 1 < stones ? squares[i + 1] : PlayBoard.SQUARES_COUNT;
+
+			if (squares[i] + 1 < limit)
+			{
+				squares[i]++;
+
+				for (int j = 0; j < i; j++)
+				{
+					squares[j] = j;
+				}
+
+				return;
+			}
+		}
+	}
+
+
+	/**
+	 * @param args the command line arguments
+	 */
+	public static void main(String[] args)
+	{
+		if (args.length != 2 && args.length != 3)
+		{
+			System.err.println("Usage: TablebaseGenerator <tablebase directory> <max stones> [threads]");
+			System.exit(1);
+			return;
+		}
+
+		try
+		{
+			File directory	= new File(args[0]);
+			int maxStones	= Integer.parseInt(args[1]);
+			int threads		= args.length == 3 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+			if (maxStones < 0 || maxStones > EndgameTablebase.MAX_STONES)
+			{
+				throw new NumberFormatException("Max stones must be between 0 and " + EndgameTablebase.MAX_STONES + ".");
+			}
+
+			if (!directory.isDirectory() && !directory.mkdirs())
+			{
+				throw new StorageException("Directory " + directory + " can't be created.");
+			}
+
+			TablebaseGenerator generator = new TablebaseGenerator(threads);
+
+			try
+			{
+				for (int stones = 0; stones <= maxStones; stones++)
+				{
+					EndgameTablebase.save(new File(directory, EndgameTablebase.getFileName(stones)), stones, generator.generate(stones));
+				}
+			}
+			finally
+			{
+				generator.shutdown();
+			}
+		}
+		catch (StorageException | NumberFormatException e)
+		{
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			System.exit(1);
+		}
+	}
+}
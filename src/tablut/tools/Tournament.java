@@ -0,0 +1,594 @@
+package tablut.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import tablut.ComputerPlayer;
+import tablut.History;
+import tablut.HistoryItem;
+import tablut.Judge;
+import tablut.PlayBoard;
+import tablut.TablutSquare;
+import tablut.exceptions.PlayerException;
+
+/**
+ * Turnaj dvou nastavení počítačového hráče bez GUI.
+ *
+ * Partie se hrají po dvojicích ze stejného náhodného zahájení - jednou hraje hráč A za Rusy,
+ * podruhé za Švédy - takže se vyrovná výhoda strany. Dvojice partií běží paralelně (jedna
+ * partie na vlákno), každá partie má vlastní hráče s vlastní transpoziční tabulkou.
+ * Partie končí výhrou, hráčem bez tahů (prohrál), dosažením maximálního počtu tahů bez
+ * zajmutí (remíza) nebo maximální délkou partie (remíza). Opakování tahů se brání stejně
+ * jako Manager - slabší (nebo stejně silný) hráč v cyklu ignoruje svůj předchozí tah.
+ *
+ * Výsledkem jsou výhry, remízy a prohry hráče A, rozdíl Elo hráče A proti hráči B
+ * a jeho 95% interval spolehlivosti (z rozptylu výsledků jednotlivých partií).
+ *
+ * Nastavení hráče: obtížnost[:časový limit v ms[:velikost transpoziční tabulky v MB]]
+ *
+ * Použití:
+ *   Tournament <počet partií> <hráč A> <hráč B> [počet vláken] [semínko]
+ *
+ * @author Ondřej Tom
+ */
+public class Tournament
+{
+	/**
+	 * Maximální délka partie (půltahy), poté je partie remízou.
+	 */
+	public static int MAX_GAME_MOVES = 300;
+
+
+	/**
+	 * Počet náhodných půltahů na začátku dvojice partií (pro různorodost partií).
+	 */
+	public static int RANDOM_OPENING_MOVES = 2;
+
+
+	/**
+	 * Výchozí velikost transpoziční tabulky hráče (MB) - menší než ve hře, v turnaji hraje více hráčů zároveň.
+	 */
+	public static int DEFAULT_TABLE_SIZE_MB = 8;
+
+
+	/**
+	 * Kvantil normálního rozdělení pro 95% interval spolehlivosti.
+	 */
+	private static double CONFIDENCE_QUANTILE = 1.96;
+
+
+	/**
+	 * Nastavení počítačového hráče.
+	 */
+	public static class PlayerConfig
+	{
+		/**
+		 * Obtížnost (hloubka prohledávání).
+		 */
+		private int difficulty;
+
+
+		/**
+		 * Časový limit tahu (ms, 0 = bez limitu).
+		 */
+		private int timeLimit;
+
+
+		/**
+		 * Velikost transpoziční tabulky (MB).
+		 */
+		private int tableSizeMB;
+
+
+		/**
+		 * @param difficulty
+		 * @param timeLimit
+		 * @param tableSizeMB
+		 */
+		public PlayerConfig(int difficulty, int timeLimit, int tableSizeMB)
+		{
+			this.difficulty		= difficulty;
+			this.timeLimit		= timeLimit;
+			this.tableSizeMB	= tableSizeMB;
+		}
+
+
+		/**
+		 * Vytvoří nastavení z textu "obtížnost[:časový limit[:velikost tabulky]]".
+		 *
+		 * @param text
+		 * @return
+		 * @throws NumberFormatException
+		 */
+		public static PlayerConfig parse(String text) throws NumberFormatException
+		{
+			String[] parts = text.split(":");
+
+			if (parts.length > 3)
+			{
+				throw new NumberFormatException("Player must be given as difficulty[:time limit[:table size MB]].");
+			}
+
+			return new PlayerConfig(
+					Integer.parseInt(parts[0]),
+					parts.length > 1 ? Integer.parseInt(parts[1]) : 0,
+					parts.length > 2 ? Integer.parseInt(parts[2]) : DEFAULT_TABLE_SIZE_MB
+			);
+		}
+
+
+		/**
+		 * Vytvoří nového hráče (bez přemýšlení během tahu soupeře).
+		 *
+		 * @return
+		 */
+		public ComputerPlayer createPlayer()
+		{
+			ComputerPlayer player = new ComputerPlayer(difficulty, timeLimit, tableSizeMB);
+			player.setPonderEnabled(false);
+
+			return player;
+		}
+
+
+		@Override
+		public String toString()
+		{
+			return "difficulty " + difficulty + (timeLimit > 0 ? ", " + timeLimit + " ms" : "") + ", " + tableSizeMB + " MB";
+		}
+	}
+
+
+	/**
+	 * Nastavení hráče A.
+	 */
+	private PlayerConfig playerA;
+
+
+	/**
+	 * Nastavení hráče B.
+	 */
+	private PlayerConfig playerB;
+
+
+	/**
+	 * Výhry hráče A (za Rusy, za Švédy).
+	 */
+	private int winsAsRussian = 0, winsAsSweden = 0;
+
+
+	/**
+	 * Prohry hráče A (za Rusy, za Švédy).
+	 */
+	private int lossesAsRussian = 0, lossesAsSweden = 0;
+
+
+	/**
+	 * Remízy.
+	 */
+	private int draws = 0;
+
+
+	/**
+	 * Celkový počet půltahů odehraných partií.
+	 */
+	private long moves = 0;
+
+
+	/**
+	 * @param playerA
+	 * @param playerB
+	 */
+	public Tournament(PlayerConfig playerA, PlayerConfig playerB)
+	{
+		this.playerA = playerA;
+		this.playerB = playerB;
+	}
+
+
+	/**
+	 * Odehraje partii ze zahájení.
+	 *
+	 * @param russian	hráč za Rusy
+	 * @param sweden	hráč za Švédy
+	 * @param opening	tahy zahájení
+	 * @return [vítěz (0 = remíza), počet půltahů]
+	 * @throws PlayerException
+	 */
+	public static int[] playGame(ComputerPlayer russian, ComputerPlayer sweden, List<int[][]> opening) throws PlayerException
+	{
+		Judge judge				= new Judge(new PlayBoard());
+		History history			= new History();
+		int[] moves				= new int[Judge.MAX_MOVES_COUNT];
+		int player				= TablutSquare.RUSSIAN;
+		int ignoredMovesDepth	= -1;
+		int move;
+
+		for (move = 0; move < MAX_GAME_MOVES; move++)
+		{
+			if (judge.isPlayerWinner(TablutSquare.RUSSIAN))
+			{
+				return new int[]{TablutSquare.RUSSIAN, move};
+			}
+
+			if (judge.isPlayerWinner(TablutSquare.SWEDEN))
+			{
+				return new int[]{TablutSquare.SWEDEN, move};
+			}
+
+			if (judge.isBlindMovesCountReached())
+			{
+				break;
+			}
+
+			// Hráč bez tahů prohrál.
+			if (judge.generateMoves(player, moves) == 0)
+			{
+				return new int[]{judge.getOtherPlayer(player), move};
+			}
+
+			int[][] played;
+
+			if (move < opening.size())
+			{
+				played = opening.get(move);
+			}
+			else
+			{
+				ComputerPlayer computer	= player == TablutSquare.RUSSIAN ? russian : sweden;
+				ComputerPlayer oponent	= player == TablutSquare.RUSSIAN ? sweden : russian;
+				int[][] ignoredMove		= null;
+
+				// Pokud pohyby oscilují, ignorujeme předchozí tah hráče na tahu (viz Manager).
+				if (computer.getDifficulty() <= oponent.getDifficulty() && judge.areMovesInCycle(history))
+				{
+					ignoredMovesDepth++;
+
+					HistoryItem ignoredItem = history.getUndoItems().get(
+							history.getUndoItems().size() - Judge.MOVES_OSCILATING_LIMIT
+					);
+
+					ignoredMove = new int[][]{ignoredItem.getMoveFrom(), ignoredItem.getMoveTo()};
+				}
+
+				played = computer.getBestMove(judge, player, ignoredMove, ignoredMovesDepth);
+			}
+
+			history.addUndo(new HistoryItem(player, (PlayBoard) judge.getBoard().clone(), played[0], played[1], judge.getBlindMovesCount()));
+			judge.playGameMove(played[0], played[1], player);
+			player = judge.getOtherPlayer(player);
+		}
+
+		return new int[]{0, move};
+	}
+
+
+	/**
+	 * Vytvoří náhodné zahájení.
+	 *
+	 * @param random
+	 * @return
+	 */
+	private static List<int[][]> createOpening(Random random)
+	{
+		List<int[][]> opening	= new ArrayList<>();
+		Judge judge				= new Judge(new PlayBoard());
+		int[] moves				= new int[Judge.MAX_MOVES_COUNT];
+		int player				= TablutSquare.RUSSIAN;
+
+		for (int move = 0; move < RANDOM_OPENING_MOVES; move++)
+		{
+			int count = judge.generateMoves(player, moves);
+
+			if (count == 0 || judge.isPlayerWinner(TablutSquare.RUSSIAN) || judge.isPlayerWinner(TablutSquare.SWEDEN))
+			{
+				break;
+			}
+
+			int[][] played = Judge.unpackMove(moves[random.nextInt(count)]);
+
+			opening.add(played);
+			judge.playGameMove(played[0], played[1], player);
+			player = judge.getOtherPlayer(player);
+		}
+
+		return opening;
+	}
+
+
+	/**
+	 * Odehraje dvojici partií ze stejného zahájení a zapíše výsledky.
+	 *
+	 * @param opening
+	 * @throws PlayerException
+	 */
+	private void playPair(List<int[][]> opening) throws PlayerException
+	{
+		int[] first		= playGame(playerA.createPlayer(), playerB.createPlayer(), opening);
+		int[] second	= playGame(playerB.createPlayer(), playerA.createPlayer(), opening);
+
+		synchronized (this)
+		{
+			addResult(first[0], TablutSquare.RUSSIAN, first[1]);
+			addResult(second[0], TablutSquare.SWEDEN, second[1]);
+		}
+	}
+
+
+	/**
+	 * Zapíše výsledek partie.
+	 *
+	 * @param winner	vítěz (0 = remíza)
+	 * @param sideA		strana hráče A
+	 * @param gameMoves	počet půltahů partie
+	 */
+	private void addResult(int winner, int sideA, int gameMoves)
+	{
+		moves += gameMoves;
+
+		if (winner == 0)
+		{
+			draws++;
+		}
+		else if (winner == sideA)
+		{
+			if (sideA == TablutSquare.RUSSIAN)
+			{
+				winsAsRussian++;
+			}
+			else
+			{
+				winsAsSweden++;
+			}
+		}
+		else
+		{
+			if (sideA == TablutSquare.RUSSIAN)
+			{
+				lossesAsRussian++;
+			}
+			else
+			{
+				lossesAsSweden++;
+			}
+		}
+	}
+
+
+	/**
+	 * Odehraje turnaj.
+	 *
+	 * @param pairs		počet dvojic partií
+	 * @param threads	počet vláken
+	 * @param seed		semínko náhodných zahájení
+	 * @throws InterruptedException
+	 * @throws PlayerException
+	 */
+	public void run(int pairs, int threads, long seed) throws InterruptedException, PlayerException
+	{
+		ExecutorService executor	= Executors.newFixedThreadPool(Math.max(1, threads));
+		List<Callable<Void>> tasks	= new ArrayList<>();
+		Random random				= new Random(seed);
+
+		for (int i = 0; i < pairs; i++)
+		{
+			final List<int[][]> opening = createOpening(random);
+
+			tasks.add(new Callable<Void>()
+			{
+				@Override
+				public Void call() throws PlayerException
+				{
+					playPair(opening);
+					printProgress();
+
+					return null;
+				}
+			});
+		}
+
+		try
+		{
+			for (Future<Void> future : executor.invokeAll(tasks))
+			{
+				future.get();
+			}
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof PlayerException)
+			{
+				throw (PlayerException) e.getCause();
+			}
+
+			throw new IllegalStateException("Playing tournament failed.", e.getCause());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+
+	/**
+	 * Vypíše průběžný stav turnaje.
+	 */
+	private synchronized void printProgress()
+	{
+		System.out.println(String.format(Locale.ROOT, "Games %d: +%d =%d -%d", getGamesCount(), getWins(), draws, getLosses()));
+	}
+
+
+	/**
+	 * @return
+	 */
+	public synchronized int getGamesCount()
+	{
+		return getWins() + draws + getLosses();
+	}
+
+
+	/**
+	 * Vrátí počet výher hráče A.
+	 *
+	 * @return
+	 */
+	public synchronized int getWins()
+	{
+		return winsAsRussian + winsAsSweden;
+	}
+
+
+	/**
+	 * @return
+	 */
+	public synchronized int getDraws()
+	{
+		return draws;
+	}
+
+
+	/**
+	 * Vrátí počet proher hráče A.
+	 *
+	 * @return
+	 */
+	public synchronized int getLosses()
+	{
+		return lossesAsRussian + lossesAsSweden;
+	}
+
+
+	/**
+	 * Vrátí průměrný výsledek hráče A (výhra 1, remíza 0.5, prohra 0).
+	 *
+	 * @return
+	 */
+	public synchronized double getScore()
+	{
+		int games = getGamesCount();
+
+		return games > 0 ? (getWins() + draws / 2.0) / games : 0.5;
+	}
+
+
+	/**
+	 * Vrátí rozdíl Elo odpovídající průměrnému výsledku.
+	 *
+	 * @param score
+	 * @return
+	 */
+	public static double getEloDifference(double score)
+	{
+		if (score <= 0)
+		{
+			return Double.NEGATIVE_INFINITY;
+		}
+
+		if (score >= 1)
+		{
+			return Double.POSITIVE_INFINITY;
+		}
+
+		return -400 * Math.log10(1 / score - 1);
+	}
+
+
+	/**
+	 * Vrátí 95% interval spolehlivosti průměrného výsledku hráče A [dolní, horní mez].
+	 *
+	 * @return
+	 */
+	public synchronized double[] getScoreInterval()
+	{
+		int games		= getGamesCount();
+		double score	= getScore();
+
+		if (games == 0)
+		{
+			return new double[]{0, 1};
+		}
+
+		double wins		= getWins() / (double) games;
+		double drawn	= draws / (double) games;
+		double losses	= getLosses() / (double) games;
+
+		double variance = wins * Math.pow(1 - score, 2) + drawn * Math.pow(0.5 - score, 2) + losses * Math.pow(score, 2);
+		double error	= CONFIDENCE_QUANTILE * Math.sqrt(variance / games);
+
+		return new double[]{Math.max(0, score - error), Math.min(1, score + error)};
+	}
+
+
+	@Override
+	public synchronized String toString()
+	{
+		double score		= getScore();
+		double[] interval	= getScoreInterval();
+		int games			= getGamesCount();
+
+		return String.format(Locale.ROOT,
+				"A (%s) vs B (%s)%n"
+				+ "Games %d: +%d =%d -%d (as Russians +%d -%d, as Swedes +%d -%d), average length %.1f moves%n"
+				+ "Score %.1f %% [%.1f %%, %.1f %%], Elo %+.0f [%+.0f, %+.0f] (95 %% confidence)",
+				playerA, playerB,
+				games, getWins(), draws, getLosses(), winsAsRussian, lossesAsRussian, winsAsSweden, lossesAsSweden,
+				games > 0 ? (double) moves / games : 0,
+				score * 100, interval[0] * 100, interval[1] * 100,
+				getEloDifference(score), getEloDifference(interval[0]), getEloDifference(interval[1]));
+	}
+
+
+	/**
+	 * @param args the command line arguments
+	 */
+	public static void main(String[] args)
+	{
+		if (args.length < 3 || args.length > 5)
+		{
+			System.err.println("Usage: Tournament <games> <player A> <player B> [threads] [seed]");
+			System.err.println("       games  = even number of games (each opening is played with both colours)");
+			System.err.println("       player = difficulty[:time limit ms[:table size MB]]");
+			System.exit(1);
+			return;
+		}
+
+		try
+		{
+			int games		= Integer.parseInt(args[0]);
+			int threads		= args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+			long seed		= args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+
+			// Partie se hrají po dvojicích - lichý počet by se tiše zaokrouhlil nahoru.
+			if (games <= 0 || games % 2 != 0)
+			{
+				System.err.println("The number of games must be a positive even number (games are played in pairs).");
+				System.exit(1);
+				return;
+			}
+
+			Tournament tournament = new Tournament(PlayerConfig.parse(args[1]), PlayerConfig.parse(args[2]));
+
+			// Partie se hrají po dvojicích (obě strany ze stejného zahájení).
+			tournament.run(games / 2, threads, seed);
+
+			System.out.println(tournament);
+		}
+		catch (PlayerException | NumberFormatException e)
+		{
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			System.exit(1);
+		}
+	}
+}
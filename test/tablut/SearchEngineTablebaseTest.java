@@ -0,0 +1,139 @@
+package tablut;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import tablut.tools.TablebaseGenerator;
+
+/**
+ * Prohledávání s tablebází koncovek musí posuzovat výsledky podle skutečného
+ * počtu tahů bez zajmutí v partii (ne podle počtu půltahů od kořene prohledávání).
+ *
+ * @author Ondřej Tom
+ */
+public class SearchEngineTablebaseTest
+{
+	/**
+	 * Tablebáze koncovek král proti jednomu ruskému kameni.
+	 */
+	private static EndgameTablebase tablebase;
+
+
+	/**
+	 * Vygeneruje tablebázi do dočasného adresáře.
+	 *
+	 * @throws Exception
+	 */
+	@BeforeAll
+	public static void generateTablebase() throws Exception
+	{
+		File directory = Files.createTempDirectory("tablut-tablebase").toFile();
+		File file = new File(directory, EndgameTablebase.getFileName(1));
+
+		directory.deleteOnExit();
+		file.deleteOnExit();
+
+		TablebaseGenerator generator = new TablebaseGenerator(1);
+
+		try
+		{
+			EndgameTablebase.save(file, 1, generator.generate(1));
+		}
+		finally
+		{
+			generator.shutdown();
+		}
+
+		tablebase = EndgameTablebase.load(directory);
+	}
+
+
+	/**
+	 * Najde pozici, kterou Švédové na tahu vyhrají, ale nejdříve za 3 půltahy.
+	 *
+	 * @return
+	 */
+	private static PlayBoard findSlowSwedishWin()
+	{
+		for (int king = 0; king < PlayBoard.SQUARES_COUNT; king++)
+		{
+			for (int russian = 0; russian < PlayBoard.SQUARES_COUNT; russian++)
+			{
+				if (russian == king || PlayBoard.isProtectedSquare(russian))
+				{
+					continue;
+				}
+
+				int[][] squares = new int[PlayBoard.SIZE + 1][PlayBoard.SIZE + 1];
+				squares[king / (PlayBoard.SIZE + 1)][king % (PlayBoard.SIZE + 1)]		= TablutSquare.KING;
+				squares[russian / (PlayBoard.SIZE + 1)][russian % (PlayBoard.SIZE + 1)]	= TablutSquare.RUSSIAN;
+
+				PlayBoard board = new PlayBoard(squares);
+
+				if (tablebase.probe(board, TablutSquare.SWEDEN, 0) == EndgameTablebase.WIN
+						&& tablebase.probe(board, TablutSquare.SWEDEN, Judge.BLIND_MOVES_MAX_COUNT - 2) == EndgameTablebase.DRAW)
+				{
+					return board;
+				}
+			}
+		}
+
+		return null;
+	}
+
+
+	/**
+	 * Ohodnotí pozici prohledáváním do hloubky 1 (pozice po tazích se ohodnotí tablebází).
+	 *
+	 * @param board
+	 * @param blindMovesCount
+	 * @return
+	 * @throws Exception
+	 */
+	private static int search(PlayBoard board, int blindMovesCount) throws Exception
+	{
+		Judge judge = new Judge((PlayBoard) board.clone());
+		judge.setBlindMovesCount(blindMovesCount);
+
+		SearchEngine engine = new SearchEngine(judge, null);
+		engine.setTablebase(tablebase);
+		engine.getBestMove(TablutSquare.SWEDEN, 1, null, 0);
+
+		return engine.getLastScore();
+	}
+
+
+	@Test
+	public void winIsFoundWithEnoughBlindMovesLeft() throws Exception
+	{
+		PlayBoard board = findSlowSwedishWin();
+		assertNotNull(board);
+
+		assertTrue(search(board, 0) > ComputerPlayer.LOT);
+	}
+
+
+	@Test
+	public void winIsDrawWhenBlindMovesRunOut() throws Exception
+	{
+		PlayBoard board = findSlowSwedishWin();
+		assertNotNull(board);
+
+		assertEquals(0, search(board, Judge.BLIND_MOVES_MAX_COUNT - 1));
+	}
+
+
+	@Test
+	public void judgeCopyKeepsBlindMovesCount()
+	{
+		Judge judge = new Judge(new PlayBoard());
+		judge.setBlindMovesCount(25);
+
+		assertEquals(25, ((Judge) judge.clone()).getBlindMovesCount());
+	}
+}